@@ -0,0 +1,65 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+
+/**
+ * An {@link InputStream} reading from its own view of a {@link ByteBuffer}, so the original's position is left alone
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] to, int offset, int length) {
+		if (length == 0) return 0;
+		if (!buffer.hasRemaining()) return -1;
+
+		length = Math.min(length, buffer.remaining());
+		buffer.get(to, offset, length);
+		return length;
+	}
+
+	@Override
+	public long skip(long bytes) {
+		if (bytes <= 0) return 0;
+
+		int skipped = (int) Math.min(bytes, buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		buffer.mark();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		try {
+			buffer.reset();
+		} catch (InvalidMarkException e) {
+			throw new IOException("Stream was never marked", e);
+		}
+	}
+}
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.chocohead.cassette;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
@@ -15,15 +18,16 @@ import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
-import javax.sound.sampled.AudioFileFormat.Type;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 public final class Cassette {
+	private static final int WRITE_BUFFER_SIZE = 65536;
+
 	@FunctionalInterface
-	private interface CassetteWriterConsumer {
+	interface CassetteWriterConsumer {
 		void accept(CassetteWriter writer) throws IOException;
 	}
 
@@ -31,6 +35,7 @@ public final class Cassette {
 		private final Path to;
 		private final Set<Entry<String, Path>> paths = new LinkedHashSet<>();
 		private final Set<Entry<String, Path>> negativePaths = new LinkedHashSet<>();
+		private boolean compress;
 
 		Builder() {
 			to = null;
@@ -45,10 +50,17 @@ public final class Cassette {
 
 			clone.paths.addAll(paths);
 			clone.negativePaths.addAll(negativePaths);
+			clone.compress = compress;
 
 			return clone;
 		}
 
+		/** Deflate each track which gets smaller for it, to be inflated again when read */
+		public Builder compressing(boolean compress) {
+			this.compress = compress;
+			return this;
+		}
+
 		public Builder addDirectory(Path directory) throws IOException {
 			return addDirectory(directory, Constants.alwaysTrue());
 		}
@@ -76,11 +88,11 @@ public final class Cassette {
 				writer.writeLong(paths.size() + negativePaths.size());
 				for (Entry<String, Path> path : paths) {
 					System.out.println("Writing " + path.getKey());
-					writer.writeFile(path.getKey(), path.getValue());
+					writer.writeFile(path.getKey(), path.getValue(), false, compress);
 				}
 				for (Entry<String, Path> path : negativePaths) {
 					System.out.println("Writing " + path.getKey());
-					writer.writeFile(path.getKey(), path.getValue(), true);
+					writer.writeFile(path.getKey(), path.getValue(), true, compress);
 				}
 			});
 		}
@@ -135,13 +147,19 @@ public final class Cassette {
 	static void write(Path to, CassetteWriterConsumer writerFiller) throws IOException {
 		if (to == null) throw new IllegalArgumentException("Cannot write to null file!");
 		AudioFormat format = new AudioFormat(44100, 8, 1, false, false);
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-		CassetteWriter writer = new CassetteWriter(out, format.getSampleSizeInBits());
-		writerFiller.accept(writer);
+		try (FileChannel channel = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			WaveFile.writeHeader(channel, format); //Sizes are patched in once we know how long it all is
 
-		try (AudioInputStream audio = new AudioInputStream(new ByteArrayInputStream(out.toByteArray()), format, writer.getFinalSize())) {
-			AudioSystem.write(audio, Type.WAVE, to.toFile());
+			//Not closed as that would close the channel before we can finish the header
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+			CassetteWriter writer = new CassetteWriter(out, format.getSampleSizeInBits());
+			writerFiller.accept(writer);
+
+			long frames = writer.getFinalSize();
+			out.flush();
+
+			WaveFile.finish(channel, Math.multiplyExact(frames, format.getFrameSize()), CassetteIndex.write(writer.getTracks()));
 		}
 	}
 
@@ -151,6 +169,10 @@ public final class Cassette {
 		void accept(CassetteReader reader) throws IOException;
 	}
 
+	public static MappedCassette map(Path origin) throws IOException {
+		return MappedCassette.map(origin);
+	}
+
 	public static void readCompletely(Path origin, CassetteReaderConsumer readerReader) throws IOException {
 		try (AudioInputStream in = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(origin)))) {
 			CassetteReader reader = new CassetteReader(in);
@@ -0,0 +1,166 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.chocohead.cassette.CassetteReader.CassetteFile;
+
+/**
+ * A table of contents for a cassette, allowing any track to be found without decoding the tracks before it
+ * <br>
+ * Stored as a count, then a fixed width entry per track sorted by name, followed by the names themselves:
+ * <pre>
+ * int count
+ * count * {long offset, long storedSize, long size, int flags, int nameStart, int nameLength}
+ * byte[] names
+ * </pre>
+ * Version 1 cassettes didn't support compression so lack the (decompressed) {@code size}
+ */
+public final class CassetteIndex {
+	static final int NEGATIVE = 0b01;
+	static final int COMPRESSED = 0b10;
+	private static final int ENTRY_SIZE = Long.BYTES * 3 + Integer.BYTES * 3;
+	private static final int V1_ENTRY_SIZE = Long.BYTES * 2 + Integer.BYTES * 3;
+	private static final Comparator<CassetteFile> ORDER = Comparator.<CassetteFile, String>comparing(file -> file.name).thenComparing(file -> file.negative);
+	private final ByteBuffer index;
+	private final int count, names;
+	private final int entrySize, flags;
+
+	CassetteIndex(ByteBuffer index, int version) throws IOException {
+		this.index = index.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		entrySize = version > 1 ? ENTRY_SIZE : V1_ENTRY_SIZE;
+		flags = entrySize - Integer.BYTES * 3;
+
+		count = this.index.remaining() >= Integer.BYTES ? this.index.getInt(0) : -1;
+		if (count < 0 || (this.index.remaining() - Integer.BYTES) / entrySize < count) {
+			throw new IOException("Corrupt track index claiming " + count + " tracks in " + this.index.remaining() + " bytes");
+		}
+		names = Integer.BYTES + count * entrySize;
+	}
+
+	static ByteBuffer write(Collection<CassetteFile> tracks) {
+		List<CassetteFile> sorted = new ArrayList<>(tracks);
+		sorted.sort(ORDER);
+
+		List<byte[]> names = new ArrayList<>(sorted.size());
+		int nameLength = 0;
+		for (CassetteFile track : sorted) {
+			byte[] name = track.name.getBytes(StandardCharsets.US_ASCII);
+			nameLength = Math.addExact(nameLength, name.length);
+			names.add(name);
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(Math.addExact(Integer.BYTES + Math.multiplyExact(sorted.size(), ENTRY_SIZE), nameLength)).order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(sorted.size());
+
+		for (int i = 0, nameStart = 0; i < sorted.size(); i++) {
+			CassetteFile track = sorted.get(i);
+			assert track.offset >= 0: "Unpositioned track " + track;
+
+			out.putLong(track.offset).putLong(track.storedSize).putLong(track.size);
+			out.putInt((track.negative ? NEGATIVE : 0) | (track.compressed ? COMPRESSED : 0));
+			out.putInt(nameStart).putInt(names.get(i).length);
+			nameStart += names.get(i).length;
+		}
+
+		for (byte[] name : names) {
+			out.put(name);
+		}
+
+		assert !out.hasRemaining();
+		out.flip();
+		return out;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	private int entry(int track) {
+		if (track < 0 || track >= count) throw new IndexOutOfBoundsException("Track " + track + " of " + count);
+		return Integer.BYTES + track * entrySize;
+	}
+
+	private String name(int entry) {
+		byte[] name = new byte[index.getInt(entry + flags + 8)];
+
+		ByteBuffer pool = index.duplicate();
+		pool.position(names + index.getInt(entry + flags + 4));
+		pool.get(name);
+
+		return new String(name, StandardCharsets.US_ASCII);
+	}
+
+	/** Get the track at the given position, sorted by name */
+	public CassetteFile get(int track) {
+		int entry = entry(track);
+
+		int flags = index.getInt(entry + this.flags);
+		long storedSize = index.getLong(entry + 8);
+		long size = entrySize > V1_ENTRY_SIZE ? index.getLong(entry + 16) : storedSize;
+
+		return new CassetteFile(name(entry), (flags & NEGATIVE) != 0, (flags & COMPRESSED) != 0, size, storedSize, index.getLong(entry), null);
+	}
+
+	private int compare(int track, String name, boolean negative) {
+		int entry = entry(track);
+		int start = names + index.getInt(entry + flags + 4);
+		int length = index.getInt(entry + flags + 8);
+
+		for (int i = 0, end = Math.min(length, name.length()); i < end; i++) {
+			int difference = (index.get(start + i) & 0x7F) - name.charAt(i);
+			if (difference != 0) return difference;
+		}
+
+		if (length != name.length()) return length - name.length();
+		return Boolean.compare((index.getInt(entry + flags) & NEGATIVE) != 0, negative);
+	}
+
+	/**
+	 * Find the (non-negative) track with the given name in O(log n) time
+	 *
+	 * @param name The name of the track to find
+	 *
+	 * @return The track with the given name, or {@code null} if the cassette doesn't have one
+	 */
+	public CassetteFile find(String name) {
+		int low = 0, high = count - 1;
+
+		while (low <= high) {
+			int middle = low + high >>> 1;
+			int comparison = compare(middle, name, false);
+
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return get(middle);
+			}
+		}
+
+		return null;
+	}
+
+	/** A view of every track in the index, sorted by name */
+	public List<CassetteFile> asList() {
+		return new AbstractList<CassetteFile>() {
+			@Override
+			public CassetteFile get(int index) {
+				return CassetteIndex.this.get(index);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+}
\ No newline at end of file
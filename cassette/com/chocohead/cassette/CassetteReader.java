@@ -3,214 +3,264 @@ package com.chocohead.cassette;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-
-import javax.sound.sampled.AudioInputStream;
+import java.nio.ByteBuffer;
 
 public class CassetteReader {
 	public static class CassetteFile {
 		public final String name;
 		public final boolean negative;
+		/** Whether the file's contents are deflated on the cassette */
+		public final boolean compressed;
+		/** Size of the file's contents once {@link #compressed decompressed} */
 		public final long size;
+		/** Number of bytes the file's contents take up on the cassette */
+		public final long storedSize;
+		/** Byte offset of the file's contents from the start of the cassette's audio data */
+		public final long offset;
 		public final byte[] contents; //Don't modify me please :)
 
 		CassetteFile(String name, long size, byte[] contents) {
-			this(name, false, size, contents);
+			this(name, false, false, size, size, -1, contents);
 		}
 
-		CassetteFile(String name, boolean negative, long size, byte[] contents) {
+		CassetteFile(String name, boolean negative, boolean compressed, long size, long storedSize, long offset, byte[] contents) {
 			this.name = name;
 			this.negative = negative;
+			this.compressed = compressed;
 			this.size = size;
+			this.storedSize = storedSize;
+			this.offset = offset;
 			this.contents = contents;
 		}
 
 		@Override
 		public String toString() {
-			return "CassetteFile<"  + (negative ? '[' + name + ']' : name) + ", " + size + " bytes>";
+			return "CassetteFile<"  + (negative ? '[' + name + ']' : name) + ", " + size + " bytes" + (compressed ? " (" + storedSize + " compressed)>" : ">");
 		}
 	}
 
 	private static final int BUFFER_SIZE = 50000;//4096;
 	private final InputStream in;
 	private final byte[] buffer = new byte[BUFFER_SIZE];
-	//private long offset; //Number of frames already into the file
-	private int bufferHead, bufferTail;
+	private long offset; //Number of bytes already into the audio before the buffer
+	private int bufferHead, bufferTail; //In bytes
+	/** The next {@link #bitCount} bits to be read, most significant first, with anything above them being junk */
+	private long bits;
+	private int bitCount;
 
-	CassetteReader(AudioInputStream audio) {
+	CassetteReader(InputStream audio) {
 		in = audio;
 	}
 
 	public long readLong() throws IOException {
-		short leadingBits = readShort(3);
+		int leadingBits = (int) readBits(3);
 		return readLong(Constants.SIZE_TABLE[leadingBits]);
 	}
 
 	public CassetteFile readFile() throws IOException {
-		String name = readString();
-
-		boolean negative = !name.isEmpty() && name.charAt(name.length() - 1) == Constants.NAK;
-		if (negative) name = name.substring(0, name.length() - 1);
-
-		long size = readLong();
-		//System.out.println("Size reading finished " + (offset + bufferHead / 8) + " - " + bufferHead % 8);
-		skipEndByte();
-
-		byte[] contents = new byte[Math.toIntExact(size)];
-		readBlob(contents);
-
-		return new CassetteFile(name, negative, size, contents);
+		return readFile(true);
 	}
 
 	public CassetteFile scanFile() throws IOException {
+		return readFile(false);
+	}
+
+	private CassetteFile readFile(boolean withContents) throws IOException {
 		String name = readString();
 
 		boolean negative = !name.isEmpty() && name.charAt(name.length() - 1) == Constants.NAK;
 		if (negative) name = name.substring(0, name.length() - 1);
 
-		long size = readLong();
+		boolean compressed = !name.isEmpty() && name.charAt(name.length() - 1) == Constants.SUB;
+		if (compressed) name = name.substring(0, name.length() - 1);
+
+		long storedSize = readLong();
+		long size = compressed ? readLong() : storedSize;
+		//System.out.println("Size reading finished " + (offset + bufferHead / 8) + " - " + bufferHead % 8);
 		skipEndByte();
-		skipBytes(size);
 
-		return new CassetteFile(name, negative, size, null);
+		long offset = position();
+		byte[] contents;
+		if (withContents) {
+			contents = new byte[Math.toIntExact(storedSize)];
+			readBlob(contents);
+
+			if (compressed) contents = CassetteTrack.inflate(ByteBuffer.wrap(contents), size);
+		} else {
+			skipBytes(storedSize);
+			contents = null;
+		}
+
+		return new CassetteFile(name, negative, compressed, size, storedSize, offset, contents);
 	}
 
-	private void refillBuffer() throws IOException {
-		if (bufferHead == bufferTail) {
-			bufferHead = 0;
+	private boolean refillBuffer() throws IOException {
+		assert bufferHead == bufferTail;
+		offset += bufferTail;
+		bufferHead = 0;
 
-			//offset += bufferTail / 8;
-			bufferTail = Math.multiplyExact(in.read(buffer), 8);
-			assert bufferTail != 0;
-			if (bufferTail < 0) throw new EOFException("No more data left in file");
+		bufferTail = in.read(buffer);
+		assert bufferTail != 0;
+		if (bufferTail < 0) {
+			bufferTail = 0;
+			return false;
 		}
 
-		assert bufferHead <= bufferTail;
+		return true;
 	}
 
-	private byte readBit() throws IOException {
-		refillBuffer();
-
-		/*byte readByte = buffer[bufferHead / 8];
-		int shift = 7 - bufferHead++ % 8;
-		int bit = readByte >>> shift;
-		byte out = (byte) (bit & 0b1);
-		return out;*/
+	/** Top up {@link #bits} with as many whole bytes as will fit */
+	private void refillBits() throws IOException {
+		while (bitCount <= Long.SIZE - Byte.SIZE) {
+			if (bufferHead == bufferTail && !refillBuffer()) return;
 
-		//A byte being right shifted is never going to stop being a byte
-		return (byte) (buffer[bufferHead / 8] >>> 7 - bufferHead++ % 8 & 0b1);
+			bits = bits << Byte.SIZE | buffer[bufferHead++] & 0xFF;
+			bitCount += Byte.SIZE;
+		}
 	}
 
-	private short readShort(int bits) throws IOException {
-		assert bits <= Short.SIZE;
-		short value = 0;
+	/** Read up to 57 bits in one go */
+	private long readBits(int count) throws IOException {
+		assert 0 < count && count <= Long.SIZE - Byte.SIZE + 1;
 
-		for (int bit = bits - 1; bit >= 0; bit--) {
-			value |= readBit() << bit;
+		if (bitCount < count) {
+			refillBits();
+			if (bitCount < count) throw new EOFException("No more data left in file");
 		}
 
-		return value;
+		return bits >>> (bitCount -= count) & (1L << count) - 1;
 	}
 
 	private long readLong(int bits) throws IOException {
-		if (bits <= Short.SIZE) return readShort(bits) & 0xFFFF;
-		long value = 0;
-
-		while (bufferHead % 8 != 0) {
-			value |= (long) readBit() << --bits;
+		if (bits > 32) {//Too wide to be sure of reading in one go
+			return readBits(bits - 32) << 32 | readBits(32);
+		} else {
+			return readBits(bits);
 		}
+	}
 
-		while (bits >= 8) {
-			refillBuffer();
-			value |= (long) (buffer[bufferHead / 8] & 0xFF) << (bits -= 8);
-			bufferHead += 8;
-		}
+	public String readString() throws IOException {
+		StringBuilder builder = new StringBuilder();
 
-		while (--bits >= 0) {
-			value |= readBit() << bits;
-		}
+		while (true) {
+			if (bitCount < 8 * 7) refillBits();
 
-		return value;
-	}
+			if (bitCount >= 8 * 7) {//Read the next 8 characters at once, putting back any past the end marker
+				long chars = bits >>> (bitCount -= 8 * 7);
+
+				for (int shift = 7 * 7; shift >= 0; shift -= 7) {
+					char next = (char) (chars >>> shift & 0x7F);
 
-	private char readChar() throws IOException {
-		char value = 0;
+					if (next == Constants.ETX) {
+						bitCount += shift;
+						return builder.toString();
+					}
 
-		for (int i = 6; i >= 0; i--) {
-			value |= readBit() << i;
+					builder.append(next);
+				}
+			} else {//Near the end of the file, go one at a time
+				char next = (char) readBits(7);
+				if (next == Constants.ETX) return builder.toString();
+
+				builder.append(next);
+			}
 		}
+	}
 
-		return value;
+	private void skipEndByte() {
+		bitCount -= bitCount % Byte.SIZE;
 	}
 
-	public String readString() throws IOException {
-		StringBuilder builder = new StringBuilder();
+	private long position() {
+		if (bitCount % Byte.SIZE != 0) throw new IllegalStateException("Floating midbyte!");
 
-		char last;
-		do {
-			last = readChar();
-			builder.append(last);
-		} while (last != Constants.ETX);
+		return offset + bufferHead - bitCount / Byte.SIZE;
+	}
+
+	/** Take the next whole byte left in {@link #bits} from before the buffer was last read */
+	private int takeBitsByte() {
+		if (bitCount % Byte.SIZE != 0) throw new IllegalStateException("Floating midbyte!");
 
-		//System.out.println("String reading finished " + (offset + bufferHead / 8) + " - " + bufferHead % 8);
-		return builder.substring(0, builder.length() - 1);
+		return (int) (bits >>> (bitCount -= Byte.SIZE)) & 0xFF;
 	}
 
-	private void skipEndByte() {
-		if (bufferHead % 8 != 0) {
-			bufferHead += 8 - bufferHead % 8;
-			assert bufferHead <= bufferTail;
+	/** Move the whole bytes left in {@link #bits} back into the buffer if they are all still there */
+	private void drainBits() {
+		if (bitCount % Byte.SIZE != 0) throw new IllegalStateException("Floating midbyte!");
+
+		if (bufferHead >= bitCount / Byte.SIZE) {
+			bufferHead -= bitCount / Byte.SIZE;
+			bitCount = 0;
 		}
 	}
 
 	private void skipBytes(long bytes) throws IOException {
-		if (bufferHead % 8 != 0) throw new IllegalStateException("Floating midbyte!");
+		drainBits();
+		for (; bytes > 0 && bitCount > 0; bytes--) takeBitsByte();
 
 		while (bytes > 0) {
-			try {
-				refillBuffer();
-			} catch (EOFException e) {
-				System.err.println("Ran out of WAV to skip wanting " + bytes + " bytes more");
-				throw e;
+			if (bufferHead == bufferTail) {//Nothing buffered so see if the stream can jump ahead itself
+				offset += bufferTail;
+				bufferHead = bufferTail = 0;
+
+				long skipped = in.skip(bytes);
+				if (skipped > 0) {
+					offset += skipped;
+					bytes -= skipped;
+					continue;
+				}
+
+				if (!refillBuffer()) {
+					System.err.println("Ran out of WAV to skip wanting " + bytes + " bytes more");
+					throw new EOFException("No more data left in file");
+				}
 			}
 
-			assert (bufferTail - bufferHead) % 8 == 0;
-			long toSkip = Math.min((bufferTail - bufferHead) / 8, bytes);
-			bufferHead += toSkip * 8;
+			int toSkip = (int) Math.min(bufferTail - bufferHead, bytes);
+			bufferHead += toSkip;
 			bytes -= toSkip;
 		}
 	}
 
 	private void readBlob(byte[] to) throws IOException {
-		if (bufferHead % 8 != 0) throw new IllegalStateException("Floating midbyte!");
-		assert to.length > 0;
-
-		//System.out.println("Blob byte reading at " + (offset + bufferHead / 8));
-		int remaining = to.length;
-		do {
-			try {
-				refillBuffer();
-			} catch (EOFException e) {
-				System.err.println("Ran out of WAV with " + remaining + " bytes left");
-				throw e;
-			}
+		drainBits();
+
+		//System.out.println("Blob byte reading at " + position());
+		int toCopy = 0;
+		for (; toCopy < to.length && bitCount > 0; toCopy++) {//Straddling a buffer refill
+			to[toCopy] = (byte) takeBitsByte();
+		}
+
+		int fromBuffer = Math.min(bufferTail - bufferHead, to.length - toCopy);
+		System.arraycopy(buffer, bufferHead, to, toCopy, fromBuffer);
+		bufferHead += fromBuffer;
+		toCopy += fromBuffer;
+
+		if (toCopy < to.length) {//Read the rest straight in rather than going through the buffer
+			assert bufferHead == bufferTail;
+			offset += bufferTail;
+			bufferHead = bufferTail = 0;
 
-			assert (bufferTail - bufferHead) % 8 == 0;
-			int toRead = Math.min((bufferTail - bufferHead) / 8, remaining);
-			System.arraycopy(buffer, bufferHead / 8, to, to.length - remaining, toRead);
-			bufferHead += toRead * 8;
-			remaining -= toRead;
-		} while (remaining > 0);
+			for (int read = toCopy; read < to.length;) {
+				int done = in.read(to, read, to.length - read);
+
+				if (done < 0) {
+					System.err.println("Ran out of WAV with " + (to.length - read) + " bytes left");
+					throw new EOFException("No more data left in file");
+				}
+
+				offset += done;
+				read += done;
+			}
+		}
 	}
 
 	public void assertDrained() throws IOException {
-		if (bufferHead == bufferTail) {
-			try {
-				refillBuffer();
-			} catch (EOFException e) {
-				return;
-			}
-		} else return;
+		drainBits();
+		if (bitCount > 0) throw new AssertionError("Expected stream to be finished yet there was at least " + bitCount / Byte.SIZE + " bytes left!");
+
+		if (bufferHead == bufferTail && !refillBuffer()) return;
 
-		throw new AssertionError("Expected stream to be finished yet there was at least " + (bufferTail - bufferHead) / 8 + " bytes left!");
+		throw new AssertionError("Expected stream to be finished yet there was at least " + (bufferTail - bufferHead) + " bytes left!");
 	}
 }
\ No newline at end of file
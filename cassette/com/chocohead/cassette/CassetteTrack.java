@@ -0,0 +1,118 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.chocohead.cassette.CassetteReader.CassetteFile;
+
+/**
+ * The contents of a single track in a {@link MappedCassette}, only decompressed as and when it is read
+ */
+public final class CassetteTrack {
+	/** Inflates a track whilst knowing exactly how much is left, so {@link #available()} can be relied on to size buffers */
+	private static final class TrackInflaterInputStream extends InflaterInputStream {
+		private long remaining;
+
+		TrackInflaterInputStream(ByteBuffer stored, long size) {
+			super(new ByteBufferInputStream(stored), new Inflater(), Math.max(Math.min(stored.remaining(), 8192), 1));
+			remaining = size;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int out = super.read();
+			if (out >= 0) remaining--;
+			return out;
+		}
+
+		@Override
+		public int read(byte[] to, int offset, int length) throws IOException {
+			int read = super.read(to, offset, length);
+			if (read > 0) remaining -= read;
+			return read;
+		}
+
+		@Override
+		public long skip(long bytes) throws IOException {
+			long skipped = super.skip(bytes);
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			super.available(); //Throws if closed
+			return (int) Math.min(Math.max(remaining, 0), Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				inf.end(); //Not the default inflater, so closing won't end it
+			}
+		}
+	}
+	private final ByteBuffer stored;
+	private final boolean compressed;
+	private final long size;
+
+	CassetteTrack(ByteBuffer stored, CassetteFile track) {
+		assert stored.remaining() == track.storedSize;
+		this.stored = stored;
+		compressed = track.compressed;
+		size = track.size;
+	}
+
+	/** Whether the track is deflated on the cassette */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	/** The length of the track's contents once decompressed */
+	public long size() {
+		return size;
+	}
+
+	/** The track's contents as they are on the cassette, which will need inflating if {@link #isCompressed() compressed} */
+	public ByteBuffer getStoredContents() {
+		return stored.duplicate();
+	}
+
+	/** Open a stream of the track's (decompressed) contents, which will always report exactly how much is {@link InputStream#available() available} */
+	public InputStream openStream() {
+		return compressed ? new TrackInflaterInputStream(stored, size) : new ByteBufferInputStream(stored);
+	}
+
+	/** Read the track's entire (decompressed) contents */
+	public byte[] read() throws IOException {
+		if (compressed) {
+			return inflate(stored, size);
+		} else {
+			byte[] contents = new byte[stored.remaining()];
+			stored.duplicate().get(contents);
+			return contents;
+		}
+	}
+
+	static byte[] inflate(ByteBuffer deflated, long size) throws IOException {
+		byte[] contents = new byte[Math.toIntExact(size)];
+
+		try (InputStream in = new InflaterInputStream(new ByteBufferInputStream(deflated))) {
+			IOUtils.readFully(in, contents);
+		}
+
+		return contents;
+	}
+
+	@Override
+	public String toString() {
+		return "CassetteTrack<" + size + " bytes" + (compressed ? " (" + stored.remaining() + " compressed)>" : ">");
+	}
+}
\ No newline at end of file
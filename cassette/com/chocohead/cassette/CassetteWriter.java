@@ -6,26 +6,30 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 
+import com.chocohead.cassette.CassetteReader.CassetteFile;
+
 class CassetteWriter {
 	private final OutputStream out;
 	private final int bitsPerFrame;
 	private long framesWritten, bitsWritten;
 	private byte bitQueue, queueHead = 7;
+	private final List<CassetteFile> tracks = new ArrayList<>();
 
 	public CassetteWriter(OutputStream out, int bitsPerFrame) {
 		this.out = out;
 		this.bitsPerFrame = bitsPerFrame;
 	}
 
-	public void writeHeader() {
-		//TODO
-	}
-
 	private static byte computeUnpack(long number) {
 		int bitsUsed = Long.SIZE - Long.numberOfLeadingZeros(number);
 
@@ -51,20 +55,56 @@ class CassetteWriter {
 	}
 
 	public void writeFile(String fileName, Path file, boolean negative) throws IOException {
+		writeFile(fileName, file, negative, false);
+	}
+
+	public void writeFile(String fileName, Path file, boolean negative, boolean compress) throws IOException {
 		assert fileName.equals(fileName.replace('\\', '/')); //No accidents
 		long fileSize = Files.size(file);
 
+		if (compress) {
+			Path deflated = Files.createTempFile("cassette", ".deflate");
+
+			try {
+				Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+				try (InputStream in = Files.newInputStream(file); OutputStream out = new DeflaterOutputStream(Files.newOutputStream(deflated), deflater)) {
+					IOUtils.copyLarge(in, out);
+				} finally {
+					deflater.end();
+				}
+
+				long deflatedSize = Files.size(deflated);
+				if (deflatedSize < fileSize) {//Only worth it if it actually got smaller
+					writeFile(fileName, deflated, negative, true, fileSize, deflatedSize);
+					return;
+				}
+			} finally {
+				Files.delete(deflated);
+			}
+		}
+
+		writeFile(fileName, file, negative, false, fileSize, fileSize);
+	}
+
+	private void writeFile(String name, Path file, boolean negative, boolean compressed, long fileSize, long storedSize) throws IOException {
+		String fileName = name;
+		if (compressed) fileName += Constants.SUB;
 		if (negative) fileName += Constants.NAK;
 		writeString(fileName);
 		//System.out.println("Name ends at " + (framesWritten + bitsWritten / 8) + " - " + bitsWritten % 8);
 
-		writeLong(fileSize);
+		writeLong(storedSize);
+		if (compressed) writeLong(fileSize);
 		//System.out.println("Size ends at " + (framesWritten + bitsWritten / 8) + " - " + bitsWritten % 8);
 		drainToByte();
+		tracks.add(new CassetteFile(name, negative, compressed, fileSize, storedSize, getBytePosition(), null));
 
 		//System.out.println("Blob byte starts at " + (framesWritten + bitsWritten / 8));
 		try (InputStream in = Files.newInputStream(file)) {
-			bitsWritten = Math.addExact(bitsWritten, Math.multiplyExact(IOUtils.copyLarge(in, out), 8));
+			long written = IOUtils.copyLarge(in, out);
+			if (written != storedSize) throw new IOException("Expected " + file + " to be " + storedSize + " bytes long but was " + written);
+
+			bitsWritten = Math.addExact(bitsWritten, Math.multiplyExact(written, 8));
 		}
 
 		calculateFrames();
@@ -170,6 +210,16 @@ class CassetteWriter {
 		assert 0 <= bitsWritten && bitsWritten < bitsPerFrame;
 	}
 
+	private long getBytePosition() {
+		assert queueHead == 7: "Floating midbyte!";
+		return Math.addExact(Math.multiplyExact(framesWritten, bitsPerFrame), bitsWritten) / Byte.SIZE;
+	}
+
+	/** The tracks which have been written so far, positioned by where their contents start */
+	public List<CassetteFile> getTracks() {
+		return Collections.unmodifiableList(tracks);
+	}
+
 	public long getFinalSize() throws IOException {
 		calculateFrames();
 
@@ -87,6 +87,11 @@ public final class Main {
 					continue;
 				}
 
+			case "-z":
+			case "compress":
+				cassetteBuilder.compressing(true);
+				continue;
+
 			case "-d":
 			case "directory":
 				if (++i >= args.length) {
@@ -194,6 +199,7 @@ public final class Main {
 				System.out.println("Available flags:");
 				System.out.println("\t[-t, to] <path> - Write to the given file name");
 				System.out.println("\t[-s, safely] - Avoid replacing the destination file if it already exists");
+				System.out.println("\t[-z, compress] - Compress the files which get smaller for it");
 				System.out.println("\t[-d, directory] <dir> - Add the given directory as somewhere to copy from");
 				System.out.println("\t[-nd, negdirectory] <dir> - Add the given directory as somewhere to copy from negatively");
 				System.out.println("\t[-f, filter] <filter> - Filter to apply to the (current) directory's contents");
@@ -269,17 +275,14 @@ public final class Main {
 			}
 		}
 
-		final boolean doViewNegatives = viewNegatives;
-		Cassette.readCompletely(origin, reader -> {
-			for (long i = 0, files = reader.readLong(); i < files; i++) {
-				CassetteFile file = reader.scanFile();
-				if (file.negative && !doViewNegatives) continue; //Don't need this
+		for (CassetteFile file : Cassette.map(origin).getTracks()) {//Uses the track index if there is one
+			if (file.negative && !viewNegatives) continue; //Don't need this
 
-				System.out.print(file.name + "\t[" + file.size + " bytes]");
-				if (file.negative) System.out.print(" (n)");
-				System.out.println();
-			}
-		});
+			System.out.print(file.name + "\t[" + file.size + " bytes]");
+			if (file.compressed) System.out.print(" (z: " + file.storedSize + " bytes)");
+			if (file.negative) System.out.print(" (n)");
+			System.out.println();
+		}
 	}
 
 	private static void extract(String... args) throws IOException {
@@ -0,0 +1,106 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.chocohead.cassette.CassetteReader.CassetteFile;
+
+/**
+ * A cassette which has been memory mapped rather than read onto the heap
+ * <br>
+ * Only where each track starts and how long it is are kept, the contents are left in the mapped file until {@link #open(CassetteFile) opened}
+ * <br>
+ * Cassettes with a {@link CassetteIndex track index} need no decoding at all to open, older cassettes are scanned through once
+ */
+public final class MappedCassette {
+	private final Path origin;
+	private final ByteBuffer audio;
+	private final CassetteIndex index;
+
+	private MappedCassette(Path origin, ByteBuffer audio, CassetteIndex index) {
+		this.origin = origin;
+		this.audio = audio;
+		this.index = index;
+	}
+
+	static MappedCassette map(Path origin) throws IOException {
+		MappedByteBuffer wav;
+		try (FileChannel channel = FileChannel.open(origin, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Cassette is too large to map: " + channel.size() + " bytes");
+
+			wav = channel.map(MapMode.READ_ONLY, 0, channel.size()); //The mapping outlives the channel
+		}
+
+		ByteBuffer audio = WaveFile.findData(wav).asReadOnlyBuffer();
+		int version = WaveFile.findVersion(wav);
+		ByteBuffer index = version > 0 ? WaveFile.findIndex(wav) : null;
+
+		if (index == null) {//Written before there was an index, so we'll have to make our own
+			List<CassetteFile> tracks = new ArrayList<>();
+
+			CassetteReader reader = new CassetteReader(new ByteBufferInputStream(audio));
+			for (long i = 0, files = reader.readLong(); i < files; i++) {
+				tracks.add(reader.scanFile());
+			}
+			reader.assertDrained();
+
+			index = CassetteIndex.write(tracks);
+			version = WaveFile.VERSION;
+		}
+
+		return new MappedCassette(origin, audio, new CassetteIndex(index.asReadOnlyBuffer(), version));
+	}
+
+	public Path getOrigin() {
+		return origin;
+	}
+
+	/** The tracks in the cassette sorted by name, without their {@link CassetteFile#contents contents} */
+	public List<CassetteFile> getTracks() {
+		return index.asList();
+	}
+
+	public CassetteIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Find the (non-negative) track with the given name
+	 *
+	 * @param name The name of the track to find
+	 *
+	 * @return The track with the given name, or {@code null} if the cassette doesn't have one
+	 */
+	public CassetteFile find(String name) {
+		return index.find(name);
+	}
+
+	/**
+	 * Open the given track from the cassette without copying or decompressing it
+	 *
+	 * @param track A track from {@link #getTracks()}
+	 *
+	 * @return The track's contents, backed by the mapped cassette
+	 */
+	public CassetteTrack open(CassetteFile track) {
+		if (track.offset < 0 || track.offset + track.storedSize > audio.capacity()) {
+			throw new IllegalArgumentException("Track " + track + " isn't part of " + origin);
+		}
+
+		ByteBuffer slice = audio.duplicate();
+		slice.position((int) track.offset).limit((int) (track.offset + track.storedSize));
+		return new CassetteTrack(slice.slice(), track);
+	}
+
+	@Override
+	public String toString() {
+		return "MappedCassette<" + origin + ", " + index.size() + " tracks>";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.chocohead.cassette;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+
+/**
+ * Hand rolled RIFF/WAVE handling so cassettes can be streamed to and from disk rather than going through {@link javax.sound.sampled.AudioSystem}
+ * <br>
+ * The files written aren't byte-for-byte what {@code AudioSystem} wrote, as odd length audio gets the RIFF pad byte it leaves off.
+ * Chunks are found by walking their lengths with the padding optional, so cassettes in either layout read back the same.
+ */
+final class WaveFile {
+	/** Newest version of the cassette header which can be read */
+	static final int VERSION = 2;
+	/** Size of the RIFF, fmt, cassette and data chunk headers written by {@link #writeHeader(FileChannel, AudioFormat)} */
+	static final int HEADER_SIZE = 60;
+	private static final int RIFF_SIZE_OFFSET = 4;
+	private static final int DATA_SIZE_OFFSET = 56;
+	private static final long MAX_CHUNK_SIZE = 0xFFFFFFFFL;
+	//Chunk IDs as read in little endian
+	private static final int RIFF = 0x46464952;
+	private static final int WAVE = 0x45564157;
+	private static final int DATA = 0x61746164;
+	private static final int HEADER = 0x73736163; //cass
+	private static final int INDEX = 0x636f7463; //ctoc
+
+	private WaveFile() {
+	}
+
+	/**
+	 * Write a PCM WAV header to the start of the given channel, leaving the chunk sizes to be filled in by {@link #finish(FileChannel, long, ByteBuffer)}
+	 * <br>
+	 * The cassette header goes in its own chunk between the format and the audio, which any other WAV reader will skip over
+	 *
+	 * @param channel The channel to write the header to, positioned at the start
+	 * @param format The (PCM) format the audio will be written in
+	 */
+	static void writeHeader(FileChannel channel, AudioFormat format) throws IOException {
+		if (format.getEncoding() != Encoding.PCM_UNSIGNED && format.getEncoding() != Encoding.PCM_SIGNED) {
+			throw new IllegalArgumentException("Can only write PCM cassettes, not " + format.getEncoding());
+		}
+		assert channel.position() == 0;
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(new byte[] {'R', 'I', 'F', 'F'}).putInt(0).put(new byte[] {'W', 'A', 'V', 'E'});
+
+		header.put(new byte[] {'f', 'm', 't', ' '}).putInt(16);
+		header.putShort((short) 1); //PCM
+		header.putShort((short) format.getChannels());
+		header.putInt((int) format.getSampleRate());
+		header.putInt((int) format.getSampleRate() * format.getFrameSize());
+		header.putShort((short) format.getFrameSize());
+		header.putShort((short) format.getSampleSizeInBits());
+
+		header.putInt(HEADER).putInt(8);
+		header.putInt(VERSION);
+		header.putInt(0); //Flags, none yet
+
+		header.put(new byte[] {'d', 'a', 't', 'a'}).putInt(0);
+		assert !header.hasRemaining();
+
+		header.flip();
+		writeFully(channel, header);
+	}
+
+	/**
+	 * Append the track index after the audio, then fill in the chunk sizes left blank by {@link #writeHeader(FileChannel, AudioFormat)}
+	 *
+	 * @param channel The channel the audio was written to, positioned at the end of the audio
+	 * @param dataLength The number of bytes of audio which were written
+	 * @param index The {@link CassetteIndex#write(java.util.Collection) written} track index
+	 */
+	static void finish(FileChannel channel, long dataLength, ByteBuffer index) throws IOException {
+		assert channel.position() == HEADER_SIZE + dataLength;
+		if ((dataLength & 1) != 0) {//RIFF chunks are always word aligned
+			writeFully(channel, ByteBuffer.wrap(new byte[1]));
+		}
+
+		int indexLength = index.remaining();
+		ByteBuffer chunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(INDEX).putInt(indexLength);
+		chunk.flip();
+		writeFully(channel, chunk);
+		writeFully(channel, index);
+		if ((indexLength & 1) != 0) {
+			writeFully(channel, ByteBuffer.wrap(new byte[1]));
+		}
+
+		long riffLength = channel.position() - 8;
+		if (riffLength > MAX_CHUNK_SIZE) {
+			throw new IOException("Cassette is too long to fit in a WAV: " + riffLength + " bytes");
+		}
+
+		writeInt(channel, RIFF_SIZE_OFFSET, riffLength);
+		writeInt(channel, DATA_SIZE_OFFSET, dataLength);
+	}
+
+	/**
+	 * Find the audio data in the given WAV file, skipping over any chunks which aren't needed
+	 *
+	 * @param wav The entire WAV file, left untouched
+	 *
+	 * @return A little endian slice of the given buffer covering the audio data
+	 *
+	 * @throws IOException If the given buffer isn't a WAV file or doesn't contain any audio
+	 */
+	static ByteBuffer findData(ByteBuffer wav) throws IOException {
+		ByteBuffer data = findChunk(wav, DATA);
+		if (data == null) throw new IOException("No audio data found in WAV");
+
+		return data;
+	}
+
+	/**
+	 * Find the cassette header version of the given WAV file
+	 *
+	 * @param wav The entire WAV file, left untouched
+	 *
+	 * @return The version of the cassette header, or {@code 0} for a cassette written before there was a header
+	 *
+	 * @throws IOException If the given buffer isn't a WAV file or is from a newer version than can be read
+	 */
+	static int findVersion(ByteBuffer wav) throws IOException {
+		ByteBuffer header = findChunk(wav, HEADER);
+		if (header == null) return 0;
+
+		int version = header.remaining() >= Integer.BYTES ? header.getInt() : -1;
+		if (version <= 0 || version > VERSION) throw new IOException("Unsupported cassette version: " + version);
+
+		return version;
+	}
+
+	/**
+	 * Find the track index in the given WAV file
+	 *
+	 * @param wav The entire WAV file, left untouched
+	 *
+	 * @return A little endian slice of the given buffer covering the track index, or {@code null} if the WAV doesn't have one
+	 *
+	 * @throws IOException If the given buffer isn't a WAV file
+	 */
+	static ByteBuffer findIndex(ByteBuffer wav) throws IOException {
+		return findChunk(wav, INDEX);
+	}
+
+	private static ByteBuffer findChunk(ByteBuffer wav, int id) throws IOException {
+		ByteBuffer buffer = wav.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.remaining() < 12 || buffer.getInt() != RIFF || (buffer.getInt() & MAX_CHUNK_SIZE) < 4 || buffer.getInt() != WAVE) {
+			throw new IOException("Not a WAV file");
+		}
+
+		while (buffer.remaining() >= 8) {
+			int chunk = buffer.getInt();
+			long length = buffer.getInt() & MAX_CHUNK_SIZE;
+			if (length > buffer.remaining()) throw new EOFException("Chunk runs past end of file, wanting " + length + " bytes with " + buffer.remaining() + " left");
+
+			if (chunk == id) {
+				ByteBuffer contents = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+				contents.limit((int) length);
+				return contents;
+			}
+
+			//Skip the contents (and padding byte if present) of any other chunks
+			buffer.position((int) Math.min(buffer.position() + length + (length & 1), buffer.limit()));
+		}
+
+		return null;
+	}
+
+	private static void writeInt(FileChannel channel, long position, long value) throws IOException {
+		assert 0 <= value && value <= MAX_CHUNK_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt((int) value);
+
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
\ No newline at end of file
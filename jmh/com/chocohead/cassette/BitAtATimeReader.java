@@ -0,0 +1,214 @@
+package com.chocohead.cassette;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.chocohead.cassette.CassetteReader.CassetteFile;
+
+/**
+ * {@link CassetteReader} as it was before it decoded a word at a time, pulling every bit out of the buffer one by one
+ * <br>
+ * Only kept to compare the two against in {@link CassetteReaderBenchmark}, reads exactly the same audio
+ */
+class BitAtATimeReader {
+	private static final int BUFFER_SIZE = 50000;
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private long offset; //Number of bytes already into the audio before the buffer
+	private int bufferHead, bufferTail;
+
+	BitAtATimeReader(InputStream audio) {
+		in = audio;
+	}
+
+	long readLong() throws IOException {
+		short leadingBits = readShort(3);
+		return readLong(Constants.SIZE_TABLE[leadingBits]);
+	}
+
+	CassetteFile readFile() throws IOException {
+		return readFile(true);
+	}
+
+	CassetteFile scanFile() throws IOException {
+		return readFile(false);
+	}
+
+	private CassetteFile readFile(boolean withContents) throws IOException {
+		String name = readString();
+
+		boolean negative = !name.isEmpty() && name.charAt(name.length() - 1) == Constants.NAK;
+		if (negative) name = name.substring(0, name.length() - 1);
+
+		boolean compressed = !name.isEmpty() && name.charAt(name.length() - 1) == Constants.SUB;
+		if (compressed) name = name.substring(0, name.length() - 1);
+
+		long storedSize = readLong();
+		long size = compressed ? readLong() : storedSize;
+		skipEndByte();
+
+		long offset = position();
+		byte[] contents;
+		if (withContents) {
+			contents = new byte[Math.toIntExact(storedSize)];
+			readBlob(contents);
+
+			if (compressed) contents = CassetteTrack.inflate(ByteBuffer.wrap(contents), size);
+		} else {
+			skipBytes(storedSize);
+			contents = null;
+		}
+
+		return new CassetteFile(name, negative, compressed, size, storedSize, offset, contents);
+	}
+
+	private void refillBuffer() throws IOException {
+		if (bufferHead == bufferTail) {
+			bufferHead = 0;
+
+			offset += bufferTail / 8;
+			bufferTail = Math.multiplyExact(in.read(buffer), 8);
+			assert bufferTail != 0;
+			if (bufferTail < 0) throw new EOFException("No more data left in file");
+		}
+
+		assert bufferHead <= bufferTail;
+	}
+
+	private byte readBit() throws IOException {
+		refillBuffer();
+
+		//A byte being right shifted is never going to stop being a byte
+		return (byte) (buffer[bufferHead / 8] >>> 7 - bufferHead++ % 8 & 0b1);
+	}
+
+	private short readShort(int bits) throws IOException {
+		assert bits <= Short.SIZE;
+		short value = 0;
+
+		for (int bit = bits - 1; bit >= 0; bit--) {
+			value |= readBit() << bit;
+		}
+
+		return value;
+	}
+
+	private long readLong(int bits) throws IOException {
+		if (bits <= Short.SIZE) return readShort(bits) & 0xFFFF;
+		long value = 0;
+
+		while (bufferHead % 8 != 0) {
+			value |= (long) readBit() << --bits;
+		}
+
+		while (bits >= 8) {
+			refillBuffer();
+			value |= (long) (buffer[bufferHead / 8] & 0xFF) << (bits -= 8);
+			bufferHead += 8;
+		}
+
+		while (--bits >= 0) {
+			value |= readBit() << bits;
+		}
+
+		return value;
+	}
+
+	private char readChar() throws IOException {
+		char value = 0;
+
+		for (int i = 6; i >= 0; i--) {
+			value |= readBit() << i;
+		}
+
+		return value;
+	}
+
+	String readString() throws IOException {
+		StringBuilder builder = new StringBuilder();
+
+		char last;
+		do {
+			last = readChar();
+			builder.append(last);
+		} while (last != Constants.ETX);
+
+		return builder.substring(0, builder.length() - 1);
+	}
+
+	private void skipEndByte() {
+		if (bufferHead % 8 != 0) {
+			bufferHead += 8 - bufferHead % 8;
+			assert bufferHead <= bufferTail;
+		}
+	}
+
+	private long position() {
+		if (bufferHead % 8 != 0) throw new IllegalStateException("Floating midbyte!");
+
+		return offset + bufferHead / 8;
+	}
+
+	private void skipBytes(long bytes) throws IOException {
+		if (bufferHead % 8 != 0) throw new IllegalStateException("Floating midbyte!");
+
+		while (bytes > 0) {
+			if (bufferHead == bufferTail) {//Nothing buffered so see if the stream can jump ahead itself
+				long skipped = in.skip(bytes);
+
+				if (skipped > 0) {
+					offset += skipped;
+					bytes -= skipped;
+					continue;
+				}
+			}
+
+			try {
+				refillBuffer();
+			} catch (EOFException e) {
+				System.err.println("Ran out of WAV to skip wanting " + bytes + " bytes more");
+				throw e;
+			}
+
+			assert (bufferTail - bufferHead) % 8 == 0;
+			long toSkip = Math.min((bufferTail - bufferHead) / 8, bytes);
+			bufferHead += toSkip * 8;
+			bytes -= toSkip;
+		}
+	}
+
+	private void readBlob(byte[] to) throws IOException {
+		if (bufferHead % 8 != 0) throw new IllegalStateException("Floating midbyte!");
+		assert to.length > 0;
+
+		int remaining = to.length;
+		do {
+			try {
+				refillBuffer();
+			} catch (EOFException e) {
+				System.err.println("Ran out of WAV with " + remaining + " bytes left");
+				throw e;
+			}
+
+			assert (bufferTail - bufferHead) % 8 == 0;
+			int toRead = Math.min((bufferTail - bufferHead) / 8, remaining);
+			System.arraycopy(buffer, bufferHead / 8, to, to.length - remaining, toRead);
+			bufferHead += toRead * 8;
+			remaining -= toRead;
+		} while (remaining > 0);
+	}
+
+	void assertDrained() throws IOException {
+		if (bufferHead == bufferTail) {
+			try {
+				refillBuffer();
+			} catch (EOFException e) {
+				return;
+			}
+		} else return;
+
+		throw new AssertionError("Expected stream to be finished yet there was at least " + (bufferTail - bufferHead) / 8 + " bytes left!");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.chocohead.cassette;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CassetteReaderBenchmark {
+	@Benchmark
+	public void readFile(CorpusState corpus, Throughput throughput, Blackhole blackhole) throws IOException {
+		CassetteReader reader = new CassetteReader(new ByteArrayInputStream(corpus.audio));
+
+		for (long i = reader.readLong(); i > 0; i--) {
+			blackhole.consume(reader.readFile());
+		}
+
+		reader.assertDrained();
+		throughput.bytes += corpus.audio.length;
+	}
+
+	@Benchmark
+	public void scanFile(CorpusState corpus, Throughput throughput, Blackhole blackhole) throws IOException {
+		CassetteReader reader = new CassetteReader(new ByteArrayInputStream(corpus.audio));
+
+		for (long i = reader.readLong(); i > 0; i--) {
+			blackhole.consume(reader.scanFile());
+		}
+
+		reader.assertDrained();
+		throughput.bytes += corpus.audio.length;
+	}
+
+	@Benchmark
+	public void readFileBitAtATime(CorpusState corpus, Throughput throughput, Blackhole blackhole) throws IOException {
+		BitAtATimeReader reader = new BitAtATimeReader(new ByteArrayInputStream(corpus.audio));
+
+		for (long i = reader.readLong(); i > 0; i--) {
+			blackhole.consume(reader.readFile());
+		}
+
+		reader.assertDrained();
+		throughput.bytes += corpus.audio.length;
+	}
+
+	@Benchmark
+	public void scanFileBitAtATime(CorpusState corpus, Throughput throughput, Blackhole blackhole) throws IOException {
+		BitAtATimeReader reader = new BitAtATimeReader(new ByteArrayInputStream(corpus.audio));
+
+		for (long i = reader.readLong(); i > 0; i--) {
+			blackhole.consume(reader.scanFile());
+		}
+
+		reader.assertDrained();
+		throughput.bytes += corpus.audio.length;
+	}
+
+	@Benchmark
+	public void readCompletely(CorpusState corpus, Throughput throughput, Blackhole blackhole) throws IOException {
+		Cassette.readCompletely(corpus.cassette, reader -> {
+			for (long i = reader.readLong(); i > 0; i--) {
+				blackhole.consume(reader.readFile());
+			}
+		});
+
+		throughput.bytes += corpus.audio.length;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CassetteWriterBenchmark {
+	@State(Scope.Thread)
+	public static class Longs {
+		final long[] values = new long[4096];
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Random random = new Random(0xCA55E77EL);
+
+			//Spread evenly over bit lengths so each size class gets a go
+			for (int i = 0; i < values.length; i++) {
+				values[i] = random.nextLong() >>> random.nextInt(Long.SIZE);
+			}
+		}
+	}
+
+	/** Just the names of a {@link Corpus}, as writing them is the same whether the contents are compressed or not */
+	@State(Scope.Benchmark)
+	public static class Names {
+		@Param
+		public Corpus corpus;
+
+		String[] names;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			Path directory = Files.createTempDirectory("cassette-corpus");
+
+			try {
+				names = Arrays.stream(corpus.generate(directory)).map(Entry::getKey).toArray(String[]::new);
+			} finally {
+				FileUtils.deleteDirectory(directory.toFile());
+			}
+		}
+	}
+
+	private static CassetteWriter writer() {
+		return new CassetteWriter(NullOutputStream.NULL_OUTPUT_STREAM, Byte.SIZE);
+	}
+
+	@Benchmark
+	public long writeLong(Longs longs, Throughput throughput) throws IOException {
+		CassetteWriter writer = writer();
+
+		for (long value : longs.values) {
+			writer.writeLong(value);
+		}
+
+		long size = writer.getFinalSize();
+		throughput.bytes += size;
+		return size;
+	}
+
+	@Benchmark
+	public long writeString(Names names, Throughput throughput) throws IOException {
+		CassetteWriter writer = writer();
+
+		for (String name : names.names) {
+			writer.writeString(name);
+		}
+
+		long size = writer.getFinalSize();
+		throughput.bytes += size;
+		return size;
+	}
+
+	@Benchmark
+	public long writeFile(CorpusState corpus, Throughput throughput) throws IOException {
+		CassetteWriter writer = writer();
+
+		for (Entry<String, Path> file : corpus.files) {
+			writer.writeFile(file.getKey(), file.getValue(), false, corpus.compress);
+		}
+
+		long size = writer.getFinalSize();
+		throughput.bytes += size;
+		return size;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic sets of files to write into cassettes, shaped after the extremes a mod jar can have
+ */
+public enum Corpus {
+	/** Lots of small classes and resources, like most mods */
+	TINY_FILES(20_000, 16, 512, 1),
+	/** A handful of large blobs, like bundled textures or sounds */
+	HUGE_FILES(4, 8 << 20, 16 << 20, 1),
+	/** Deeply nested packages where the names are longer than the contents */
+	LONG_NAMES(5_000, 16, 128, 6);
+
+	private static final String NAME_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_$";
+	private final int files, minSize, maxSize, depth;
+
+	private Corpus(int files, int minSize, int maxSize, int depth) {
+		this.files = files;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.depth = depth;
+	}
+
+	/**
+	 * Fill the given directory with the corpus, always producing the same names and contents
+	 *
+	 * @param directory The empty directory to write into
+	 *
+	 * @return The files written, keyed by their name relative to the directory in the order they should be written
+	 */
+	Entry<String, Path>[] generate(Path directory) throws IOException {
+		Random random = new Random(0xCA55E77EL ^ ordinal());
+
+		for (int i = 0; i < files; i++) {
+			Path file = directory;
+			for (int level = 1; level < depth; level++) {
+				file = file.resolve(randomName(random, 40));
+			}
+			file = file.resolve(randomName(random, depth > 1 ? 40 : 12) + i + ".class");
+
+			byte[] contents = new byte[minSize + random.nextInt(maxSize - minSize + 1)];
+			//Only random over a small range so compressing the corpus does something
+			for (int j = 0; j < contents.length; j++) contents[j] = (byte) (random.nextInt(16) * random.nextInt(16));
+
+			Files.createDirectories(file.getParent());
+			Files.write(file, contents);
+		}
+
+		try (Stream<Path> paths = Files.walk(directory)) {
+			@SuppressWarnings("unchecked") //The array is only generic in so far as it should be
+			Entry<String, Path>[] out = paths.filter(Files::isRegularFile).sorted().map(Cassette.relativiser(directory)).toArray(Entry[]::new);
+			return out;
+		}
+	}
+
+	private static String randomName(Random random, int length) {
+		return random.ints(length, 0, NAME_CHARACTERS.length()).mapToObj(NAME_CHARACTERS::charAt).map(String::valueOf).collect(Collectors.joining());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.chocohead.cassette;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map.Entry;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A {@link Corpus} on disk, along with the cassette it makes
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+	@Param
+	public Corpus corpus;
+	@Param({"false", "true"})
+	public boolean compress;
+
+	Path directory, cassette;
+	Entry<String, Path>[] files;
+	/** The cassette's raw audio data, without any of the WAV around it */
+	byte[] audio;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("cassette-corpus");
+		files = corpus.generate(directory);
+
+		cassette = Files.createTempFile("cassette-corpus", ".wav");
+		Cassette.write(cassette, writer -> {
+			writer.writeLong(files.length);
+
+			for (Entry<String, Path> file : files) {
+				writer.writeFile(file.getKey(), file.getValue(), false, compress);
+			}
+		});
+
+		ByteBuffer data = WaveFile.findData(ByteBuffer.wrap(Files.readAllBytes(cassette)));
+		audio = new byte[data.remaining()];
+		data.get(audio);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.delete(cassette);
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.chocohead.cassette;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary result counting how much cassette audio a benchmark got through, reported alongside the main score
+ */
+@State(Scope.Thread)
+@AuxCounters(Type.OPERATIONS)
+public class Throughput {
+	/** Number of bytes of audio written or read during the current iteration */
+	public long bytes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		bytes = 0;
+	}
+
+	/** Throughput in megabytes (rather than bytes) per second */
+	public double megabytes() {
+		return bytes / 1e6;
+	}
+}
\ No newline at end of file
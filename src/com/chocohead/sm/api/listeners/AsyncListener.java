@@ -1,5 +1,8 @@
 package com.chocohead.sm.api.listeners;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Applied to any listener which is run off the main thread to allow syncing with it
  *
@@ -18,5 +21,48 @@ public interface AsyncListener {
 		 * @param task The task to perform on the main thread
 		 */
 		void scheduleTask(Runnable task);
+
+		/**
+		 * Schedule the given task to run from the context of the main thread, getting its result back
+		 * <br>
+		 * Tasks scheduled close together are run together, so there's little cost in scheduling many small tasks
+		 *
+		 * @param task The task to perform on the main thread
+		 *
+		 * @return A future completed with the task's result once it has run, or exceptionally with whatever it threw
+		 *
+		 * @since 0.5
+		 */
+		default <T> CompletableFuture<T> submit(Callable<T> task) {
+			CompletableFuture<T> out = new CompletableFuture<>();
+
+			scheduleTask(() -> {
+				if (out.isDone()) return; //Cancelled before it was run
+
+				try {
+					out.complete(task.call());
+				} catch (Throwable t) {
+					out.completeExceptionally(t);
+				}
+			});
+
+			return out;
+		}
+
+		/**
+		 * Schedule the given task to run from the context of the main thread, finding out once it has
+		 *
+		 * @param task The task to perform on the main thread
+		 *
+		 * @return A future completed once the task has run, or exceptionally with whatever it threw
+		 *
+		 * @since 0.5
+		 */
+		default CompletableFuture<Void> submit(Runnable task) {
+			return submit(() -> {
+				task.run();
+				return null;
+			});
+		}
 	}
 }
\ No newline at end of file
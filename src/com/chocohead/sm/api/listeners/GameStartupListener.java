@@ -30,7 +30,8 @@ public interface GameStartupListener {
 		 * @apiNote
 		 * 	Run from a different thread to the game so shouldn't interact with anything non-thread safe.
 		 * 	<br>
-		 * 	Tasks which need to be on the main thread can be scheduled via {@link #scheduleTask(Runnable)}
+		 * 	Tasks which need to be on the main thread can be scheduled via {@link Synchroniser#scheduleTask(Runnable)},
+		 * 	or {@link Synchroniser#submit(java.util.concurrent.Callable)} if the result is needed
 		 */
 		void onGameStart(Synchroniser syncer);
 	}
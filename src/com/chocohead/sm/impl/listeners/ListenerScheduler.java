@@ -0,0 +1,230 @@
+package com.chocohead.sm.impl.listeners;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.ObjLongConsumer;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+import com.chocohead.sm.api.SaltsModMetadata;
+import com.chocohead.sm.impl.SimpleModDependency;
+import com.chocohead.sm.impl.SortedModDependency;
+import com.chocohead.sm.loader.ModMetadata;
+import com.chocohead.sm.util.ListenerList;
+
+/**
+ * Runs listeners in parallel whilst keeping to the order mods depend on each other
+ * <br>
+ * A mod's listeners are run one after the other, only once every mod it depends on or is ordered after has finished running theirs.
+ * Mods which don't depend on each other are run at the same time, up to a limit on how many run at once.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+final class ListenerScheduler<T> {
+	private final ListenerList<T> listeners;
+	private final ObjLongConsumer<? super T> action;
+	private final Executor executor;
+	private final int maxRunning;
+
+	private final int[] firstListener; //Index in listeners each mod's listeners start at
+	private final int[] waiting; //Number of mods each mod is still waiting on
+	private final IntList[] dependents; //Mods waiting on each mod
+	private final Deque<Integer> ready = new ArrayDeque<>();
+	private int running, remaining;
+	private final SettableFuture<Void> result = SettableFuture.create();
+
+	private ListenerScheduler(ListenerList<T> listeners, List<ModMetadata> mods, ObjLongConsumer<? super T> action, Executor executor, int maxRunning) {
+		this.listeners = listeners;
+		this.action = action;
+		this.executor = executor;
+		this.maxRunning = maxRunning;
+
+		Map<String, Integer> index = new HashMap<>(mods.size() * 2);
+		for (int i = 0; i < mods.size(); i++) {
+			index.put(mods.get(i).getId(), i);
+		}
+
+		IntSet[] prerequisites = new IntSet[mods.size()];
+		for (int i = 0; i < mods.size(); i++) {
+			prerequisites[i] = new IntOpenHashSet();
+		}
+
+		for (int i = 0; i < mods.size(); i++) {
+			ModMetadata mod = mods.get(i);
+
+			addDependencies(i, mod.getDepends(), index, prerequisites);
+			addDependencies(i, mod.getRecommends(), index, prerequisites);
+
+			for (String before : mod.modsBefore()) {
+				Integer other = index.get(before);
+				if (other != null && other != i) prerequisites[i].add(other.intValue());
+			}
+
+			for (String after : mod.modsAfter()) {
+				Integer other = index.get(after);
+				if (other != null && other != i) prerequisites[other].add(i);
+			}
+		}
+
+		waiting = new int[mods.size()];
+		dependents = new IntList[mods.size()];
+		for (int i = 0; i < mods.size(); i++) {
+			dependents[i] = new IntArrayList();
+		}
+		for (int i = 0; i < mods.size(); i++) {
+			waiting[i] = prerequisites[i].size();
+
+			for (int prerequisite : prerequisites[i]) {
+				dependents[prerequisite].add(i);
+			}
+		}
+
+		//The listeners are in mod load order, so each mod's are all together
+		firstListener = new int[mods.size() + 1];
+		for (int mod = 0, listener = 0; mod < mods.size(); mod++) {
+			firstListener[mod] = listener;
+			while (listener < listeners.size() && listeners.getOwner(listener) == mods.get(mod)) listener++;
+			firstListener[mod + 1] = listener;
+		}
+		if (firstListener[mods.size()] != listeners.size()) {
+			throw new IllegalArgumentException("Listeners are not in the same order as the mods they are from");
+		}
+
+		remaining = mods.size();
+	}
+
+	private static void addDependencies(int mod, Collection<ModDependency> dependencies, Map<String, Integer> index, IntSet[] prerequisites) {
+		for (ModDependency dependency : dependencies) {
+			//Explicitly ordered dependencies are covered by modsBefore and modsAfter, whilst other types of mod don't have listeners here
+			if (dependency instanceof SimpleModDependency && !SaltsModMetadata.TYPE.equals(((SimpleModDependency) dependency).getModType())) continue;
+			if (dependency instanceof SortedModDependency) continue;
+
+			Integer other = index.get(dependency.getModId());
+			if (other != null && other != mod) prerequisites[mod].add(other.intValue());
+		}
+	}
+
+	/**
+	 * Run the given listeners in the order their mods depend on each other
+	 *
+	 * @param listeners The listeners to run
+	 * @param mods All the loaded mods, in load order
+	 * @param action How to run each listener, given along with the {@link System#nanoTime()} it was first able to run from
+	 * @param executor The executor to run the listeners on
+	 * @param maxRunning The most mods which can be running their listeners at once
+	 *
+	 * @return A future which completes once every listener has run, or fails with the first exception thrown by one
+	 */
+	static <T> ListenableFuture<Void> run(ListenerList<T> listeners, List<ModMetadata> mods, ObjLongConsumer<? super T> action, Executor executor, int maxRunning) {
+		if (maxRunning < 1) throw new IllegalArgumentException("Must be able to run at least one mod at a time: " + maxRunning);
+
+		ListenerScheduler<T> scheduler = new ListenerScheduler<>(listeners, mods, action, executor, maxRunning);
+		synchronized (scheduler) {
+			//Marking a mod ready can finish others straight away, so work out which are waiting on nothing first
+			IntList roots = new IntArrayList();
+			for (int mod = 0; mod < mods.size(); mod++) {
+				if (scheduler.waiting[mod] == 0) roots.add(mod);
+			}
+
+			for (int i = 0, end = roots.size(); i < end; i++) {
+				scheduler.markReady(roots.getInt(i));
+			}
+
+			scheduler.startReady();
+		}
+
+		return scheduler.result;
+	}
+
+	/** Start as many ready mods as can run now, must be called holding the lock */
+	private void startReady() {
+		while (!result.isDone() && !ready.isEmpty() && running < maxRunning) {
+			int mod = ready.poll();
+			long queuedAt = System.nanoTime();
+			running++;
+
+			try {
+				executor.execute(() -> runMod(mod, queuedAt));
+			} catch (Throwable t) {
+				running--;
+				result.setException(t);
+			}
+		}
+
+		if (!result.isDone()) {
+			if (remaining == 0) {
+				result.set(null);
+			} else if (running == 0 && ready.isEmpty()) {
+				result.setException(new IllegalStateException(remaining + " mods are left waiting on each other"));
+			}
+		}
+	}
+
+	/** Queue the given mod to run, or finish it straight away if it has nothing to run, must be called holding the lock */
+	private void markReady(int mod) {
+		if (firstListener[mod] != firstListener[mod + 1]) {
+			ready.add(mod);
+		} else {
+			finish(mod);
+		}
+	}
+
+	/** Release the mods waiting on the given mod, must be called holding the lock */
+	private void finish(int mod) {
+		IntList finished = new IntArrayList();
+		finished.add(mod);
+
+		do {//Mods without anything to run finish as soon as they're ready, which can cascade a long way
+			int done = finished.removeInt(finished.size() - 1);
+			remaining--;
+
+			for (int i = 0, end = dependents[done].size(); i < end; i++) {
+				int dependent = dependents[done].getInt(i);
+
+				if (--waiting[dependent] == 0) {
+					if (firstListener[dependent] != firstListener[dependent + 1]) {
+						ready.add(dependent);
+					} else {
+						finished.add(dependent);
+					}
+				}
+			}
+		} while (!finished.isEmpty());
+	}
+
+	private void runMod(int mod, long queuedAt) {
+		try {
+			for (int listener = firstListener[mod], end = firstListener[mod + 1]; listener < end && !result.isDone(); listener++) {
+				action.accept(listeners.get(listener), queuedAt);
+				queuedAt = System.nanoTime(); //The next listener is ready as soon as the last is done
+			}
+		} catch (Throwable t) {
+			synchronized (this) {
+				running--;
+				result.setException(t);
+			}
+			return;
+		}
+
+		synchronized (this) {
+			running--;
+			finish(mod);
+			startReady();
+		}
+	}
+}
\ No newline at end of file
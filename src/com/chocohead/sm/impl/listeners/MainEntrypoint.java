@@ -1,22 +1,27 @@
 package com.chocohead.sm.impl.listeners;
 
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
-import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.DedicatedServerModInitializer;
 
-import com.chocohead.sm.api.listeners.AsyncListener.Synchroniser;
 import com.chocohead.sm.api.listeners.GameStartupListener;
+import com.chocohead.sm.api.listeners.AsyncListener.Synchroniser;
 import com.chocohead.sm.api.listeners.GameStartupListener.GameStartupAsyncListener;
+import com.chocohead.sm.impl.listeners.StartupProfiler.Kind;
 import com.chocohead.sm.loader.ModLoader;
+import com.chocohead.sm.loader.ModMetadata;
+import com.chocohead.sm.util.ListenerList;
 import com.chocohead.sm.util.ListenerUtils;
 
 public class MainEntrypoint implements ClientModInitializer, DedicatedServerModInitializer {
@@ -30,7 +35,23 @@ public class MainEntrypoint implements ClientModInitializer, DedicatedServerModI
 	        super(message, cause);
 	    }
 	}
-	private static final GameStartupListener ASYNC_COMPLETE = () -> {};
+	/** The most time in nanoseconds to spend running tasks from async listeners before checking whether any have failed */
+	private static final long SYNC_BUDGET = TimeUnit.MILLISECONDS.toNanos(Long.getLong("chocohead.sm.syncBudget", 50));
+	/** Where async listeners are run, on virtual threads if possible as listeners are liable to spend much of their time blocking */
+	private static final Executor ASYNC_EXECUTOR;
+	/** The most mods which can be running their async listeners at once */
+	private static final int ASYNC_THREADS;
+	static {
+		Optional<ListeningExecutorService> virtualThreads = ModLoader.getVirtualThreadPool();
+
+		if (virtualThreads.isPresent()) {
+			ASYNC_EXECUTOR = virtualThreads.get();
+			ASYNC_THREADS = Integer.MAX_VALUE; //Blocking doesn't tie up a real thread, so every mod can run at once
+		} else {
+			ASYNC_EXECUTOR = ModLoader.getThreadPool()::fork; //Always queued, so a full pool never leaves the scheduling thread running listeners itself
+			ASYNC_THREADS = Math.max(ModLoader.getThreadPool().getParallelism() - 1, 1); //Leave room for anything they submit themselves
+		}
+	}
 
 	@Override
 	public void onInitializeClient() {
@@ -45,78 +66,96 @@ public class MainEntrypoint implements ClientModInitializer, DedicatedServerModI
 	}
 
 	private void initialiseListeners() {
-		BlockingQueue<GameStartupListener> listeners;
+		ModLoader.warmListeners(); //Mixin is all set up by now, so the async listeners can be loaded whilst the sync ones are made
+		MainThreadQueue syncer = new MainThreadQueue();
+		StartupProfiler profiler = new StartupProfiler();
 		try {
-			listeners = ListenerUtils.getListeners(GameStartupListener.class).collect(Collectors.toCollection(LinkedBlockingQueue::new));
+			ListenerList<GameStartupListener> syncListeners = ListenerUtils.getListenerList(GameStartupListener.class);
+			long queuedAt = System.nanoTime();
+
+			for (int i = 0; i < syncListeners.size(); i++) {
+				GameStartupListener listener = syncListeners.get(i);
+				ModMetadata owner = syncListeners.getOwner(i);
+
+				syncer.scheduleTask(() -> {
+					try {
+						profiler.time(owner, listener, Kind.SYNC, queuedAt, listener::onGameStart);
+					} catch (Throwable t) {
+						throw new ExecutionAccident("Error running sync game startup listener " + ListenerUtils.findBlame(GameStartupListener.class, listener), t);
+					}
+				});
+			}
 		} catch (Throwable t) {
 			assert !(t instanceof ExecutionAccident);
 			throw new ExecutionAccident("Error preparing sync game startup listeners", t);
 		}
 
-		Futures.addCallback(ModLoader.THREAD_POOL.submit(() -> {
-			return ListenerUtils.getListeners(GameStartupAsyncListener.class).map(listener -> {
-				Synchroniser syncer = task -> listeners.add(task::run);
+		ListenableFuture<Void> async = Futures.transformAsync(ModLoader.THREAD_POOL.submit(() -> {
+			try {
+				return ListenerUtils.getListenerList(GameStartupAsyncListener.class);
+			} catch (Throwable t) {
+				throw new ExecutionAccident("Error preparing async game startup listeners", t);
+			}
+		}), asyncListeners -> {
+			//Each mod's listeners only start once those of the mods it depends on are done
+			return ListenerScheduler.run(asyncListeners, ModLoader.getMods(), (listener, queuedAt) -> {
+				ModMetadata owner = asyncListeners.getOwner(listener);
+				Synchroniser ownSyncer = new Synchroniser() {//Blame any time spent on the main thread on the listener which scheduled it
+					@Override
+					public void scheduleTask(Runnable task) {
+						long scheduledAt = System.nanoTime();
+						syncer.scheduleTask(() -> profiler.time(owner, listener, Kind.SCHEDULED, scheduledAt, task));
+					}
 
-				return ModLoader.THREAD_POOL.submit(() -> {
-					try {
-						listener.onGameStart(syncer);
-					} catch (Throwable t) {
-						throw new ExecutionAccident("Error running async game startup listener " + ListenerUtils.findBlame(GameStartupAsyncListener.class, listener), t);
+					@Override
+					public <T> CompletableFuture<T> submit(Callable<T> task) {//Through the queue's own, so it can fail the future if the task never runs
+						long scheduledAt = System.nanoTime();
+						return syncer.submit(() -> profiler.time(owner, listener, Kind.SCHEDULED, scheduledAt, task));
 					}
-				});
-			}).collect(Collectors.toList());
-		}), new FutureCallback<List<ListenableFuture<?>>>() {
-			@Override
-			public void onSuccess(List<ListenableFuture<?>> futures) {
-				if (futures.isEmpty()) {
-					listeners.add(ASYNC_COMPLETE); //Short cut
-				} else {
-					ListenableFuture<?> all = futures.size() > 1 ? Futures.allAsList(futures) : Iterables.getOnlyElement(futures);
-					Futures.addCallback(all, new FutureCallback<Object>() {
-						@Override
-						public void onSuccess(Object result) {
-							listeners.add(ASYNC_COMPLETE);
-						}
-
-						@Override
-						public void onFailure(Throwable t) {
-							listeners.add(() -> {//Failed whilst running a listener, bubble it back up
-								if (t instanceof ExecutionAccident) {
-									throw (ExecutionAccident) t;
-								} else {
-									throw new ExecutionAccident("Error running async game startup listeners", t);
-								}
-							});
-						}
-					}, ModLoader.THREAD_POOL);
+				};
+
+				try {
+					profiler.time(owner, listener, Kind.ASYNC, queuedAt, () -> listener.onGameStart(ownSyncer));
+				} catch (Throwable t) {
+					throw new ExecutionAccident("Error running async game startup listener " + ListenerUtils.findBlame(GameStartupAsyncListener.class, listener), t);
 				}
-			}
+			}, ASYNC_EXECUTOR, ASYNC_THREADS);
+		}, MoreExecutors.directExecutor());
 
+		Futures.addCallback(async, new FutureCallback<Void>() {
 			@Override
-			public void onFailure(Throwable t) {
-				listeners.add(() -> {//Failed to even schedule them all, not ideal
-					assert !(t instanceof ExecutionAccident);
-					throw new ExecutionAccident("Error preparing async game startup listeners", t);
-				});
+			public void onSuccess(Void result) {
+				syncer.finish();
 			}
-		}, ModLoader.THREAD_POOL);
 
-		boolean clearToEnd = false;
-		GameStartupListener listener;
-		do {
-			try {
-				listener = listeners.take();
-			} catch (InterruptedException e) {
-				throw new RuntimeException("Unexpected interruption waiting for game startup listeners", e);
+			@Override
+			public void onFailure(Throwable t) {
+				syncer.fail(t);
 			}
+		}, MoreExecutors.directExecutor());
 
-			try {
-				listener.onGameStart();
+		while (syncer.awaitTasks()) {
+			try {//Run in batches so a failing async listener is noticed even if others are keeping the queue busy
+				syncer.runTasks(SYNC_BUDGET);
 			} catch (ExecutionAccident e) {
+				syncer.fail(e); //Don't leave anything waiting on tasks which won't be run now
 				throw e;
-			} catch (Throwable t) {//If we're here it's not an async listener problem
-				throw new ExecutionAccident("Error running sync game startup listener " + ListenerUtils.findBlame(GameStartupListener.class, listener), t);
+			} catch (Throwable t) {//If we're here it's a task an async listener scheduled
+				ExecutionAccident e = new ExecutionAccident("Error running task scheduled by async game startup listener", t);
+				syncer.fail(e);
+				throw e;
+			}
+		}
+
+		Throwable failure = syncer.getFailure();
+		if (failure != null) {//Failed whilst preparing or running a listener, bubble it back up
+			if (failure instanceof ExecutionAccident) {
+				throw (ExecutionAccident) failure;
+			} else {
+				throw new ExecutionAccident("Error running async game startup listeners", failure);
 			}
-		} while (!(clearToEnd |= listener == ASYNC_COMPLETE) && !listeners.isEmpty());
+		}
+
+		profiler.report();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.chocohead.sm.impl.listeners;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.chocohead.sm.api.listeners.AsyncListener.Synchroniser;
+
+/**
+ * Collects tasks from any thread to be run in batches on the thread which made it
+ * <br>
+ * Scheduling a task doesn't take any locks, and a burst of tasks only wakes the main thread once.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+final class MainThreadQueue implements Synchroniser {
+	/** A task something is waiting on the result of, which needs to be told if it is never going to be run */
+	private static final class PendingTask<T> implements Runnable {
+		final Callable<T> task;
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		PendingTask(Callable<T> task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			if (future.isDone()) return; //Cancelled before it was run
+
+			try {
+				future.complete(task.call());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}
+	}
+	private final Thread owner = Thread.currentThread();
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean sleeping = new AtomicBoolean();
+	private volatile boolean finished;
+	private volatile Throwable failure;
+
+	@Override
+	public void scheduleTask(Runnable task) {
+		tasks.add(task);
+
+		if (failure != null) {
+			drain(); //Never going to be run now
+		} else {
+			wake();
+		}
+	}
+
+	@Override
+	public <T> CompletableFuture<T> submit(Callable<T> task) {
+		PendingTask<T> pending = new PendingTask<>(task);
+		scheduleTask(pending);
+		return pending.future;
+	}
+
+	private void wake() {
+		if (sleeping.compareAndSet(true, false)) LockSupport.unpark(owner);
+	}
+
+	/** Mark that no more tasks are coming, once any already scheduled have been run */
+	void finish() {
+		finished = true;
+		wake();
+	}
+
+	/** Mark that something has gone wrong, so any outstanding tasks shouldn't be run, failing any futures waiting on them */
+	void fail(Throwable t) {
+		failure = t;
+		finish();
+		drain();
+	}
+
+	private void drain() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			if (task instanceof PendingTask) ((PendingTask<?>) task).future.completeExceptionally(failure);
+		}
+	}
+
+	/** Whatever {@link #fail(Throwable)} was called with, or {@code null} if it hasn't been */
+	Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Wait until there are tasks to run, or {@link #finish()} or {@link #fail(Throwable)} has been called
+	 *
+	 * @return Whether there are tasks to run, {@code false} if finished with nothing left to run or failed
+	 */
+	boolean awaitTasks() {
+		assert Thread.currentThread() == owner;
+
+		while (true) {
+			if (failure != null) return false;
+			if (!tasks.isEmpty()) return true;
+			if (finished) return !tasks.isEmpty(); //Anything scheduled before finishing must still be run
+
+			sleeping.set(true);
+			if (tasks.isEmpty() && !finished) LockSupport.park(this); //Any task scheduled after going to sleep will wake us
+			sleeping.set(false);
+
+			if (Thread.interrupted()) {
+				throw new RuntimeException("Unexpected interruption waiting for tasks");
+			}
+		}
+	}
+
+	/**
+	 * Run scheduled tasks until there are none left or the time budget runs out
+	 *
+	 * @param budget The time in nanoseconds to stop starting tasks after
+	 *
+	 * @return Whether there are still tasks to run
+	 */
+	boolean runTasks(long budget) {
+		assert Thread.currentThread() == owner;
+		long end = System.nanoTime() + budget;
+
+		Runnable task;
+		while (failure == null && (task = tasks.poll()) != null) {
+			task.run();
+
+			if (System.nanoTime() - end >= 0) break;
+		}
+
+		return !tasks.isEmpty();
+	}
+}
\ No newline at end of file
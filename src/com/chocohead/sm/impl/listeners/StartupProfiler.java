@@ -0,0 +1,216 @@
+package com.chocohead.sm.impl.listeners;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.chocohead.sm.loader.ModLoader;
+import com.chocohead.sm.loader.ModMetadata;
+
+/**
+ * Times how long each mod's listeners take to run, reporting which were the slowest once they're all done
+ * <br>
+ * Turned off by the {@code chocohead.sm.profiler.disable} system property, with how long a listener can run before being
+ * warned about set in milliseconds by {@code chocohead.sm.profiler.slowListener}
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+final class StartupProfiler {
+	enum Kind {
+		SYNC("sync listener", true), SCHEDULED("scheduled task", true), ASYNC("async listener", false);
+
+		final String description;
+		final boolean mainThread;
+
+		private Kind(String description, boolean mainThread) {
+			this.description = description;
+			this.mainThread = mainThread;
+		}
+	}
+	private static final class Sample {
+		final ModMetadata mod;
+		final String listener;
+		final Kind kind;
+		final long queued, wall, cpu, allocated; //CPU time and allocation are negative if unknown
+
+		Sample(ModMetadata mod, String listener, Kind kind, long queued, long wall, long cpu, long allocated) {
+			this.mod = mod;
+			this.listener = listener;
+			this.kind = kind;
+			this.queued = queued;
+			this.wall = wall;
+			this.cpu = cpu;
+			this.allocated = allocated;
+		}
+	}
+	private static final class Total {
+		int count;
+		long wall, cpu, allocated;
+
+		void add(Sample sample) {
+			count++;
+			wall += sample.wall;
+			if (sample.cpu >= 0) cpu += sample.cpu;
+			if (sample.allocated >= 0) allocated += sample.allocated;
+		}
+
+		@Override
+		public String toString() {
+			return millis(wall) + " wall, " + millis(cpu) + " CPU, " + megabytes(allocated) + " allocated over " + count + (count == 1 ? " call" : " calls");
+		}
+	}
+	private static final boolean ENABLED = !Boolean.getBoolean("chocohead.sm.profiler.disable");
+	private static final long SLOW_LISTENER = TimeUnit.MILLISECONDS.toNanos(Long.getLong("chocohead.sm.profiler.slowListener", 250));
+	private static final int SLOWEST_SHOWN = 10;
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+	private static final boolean ALLOCATION;
+	static {
+		boolean allocation;
+		try {//Not every JVM has the extended bean
+			allocation = THREADS instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+							&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+		} catch (LinkageError e) {
+			allocation = false;
+		}
+		ALLOCATION = allocation;
+	}
+	private final Queue<Sample> samples = new ConcurrentLinkedQueue<>();
+	private final long start = System.nanoTime();
+
+	private static long cpuTime() {
+		return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1; //Also -1 for virtual threads
+	}
+
+	private static long allocated() {
+		return ALLOCATION ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+
+	/**
+	 * Run the given listener, timing how long it takes
+	 *
+	 * @param mod The mod the listener is from
+	 * @param listener The listener being run
+	 * @param kind What sort of listener it is
+	 * @param queuedAt The {@link System#nanoTime()} the listener was first able to run from
+	 * @param task How to run the listener
+	 */
+	void time(ModMetadata mod, Object listener, Kind kind, long queuedAt, Runnable task) {
+		try {
+			time(mod, listener, kind, queuedAt, Executors.callable(task));
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new AssertionError("Runnable threw checked exception?", e);
+		}
+	}
+
+	/**
+	 * Run the given listener, timing how long it takes
+	 *
+	 * @param mod The mod the listener is from
+	 * @param listener The listener being run
+	 * @param kind What sort of listener it is
+	 * @param queuedAt The {@link System#nanoTime()} the listener was first able to run from
+	 * @param task How to run the listener
+	 *
+	 * @return Whatever the task returned
+	 *
+	 * @throws Exception If the task throws one
+	 */
+	<T> T time(ModMetadata mod, Object listener, Kind kind, long queuedAt, Callable<T> task) throws Exception {
+		if (!ENABLED) return task.call();
+
+		long cpuStart = cpuTime();
+		long allocatedStart = allocated();
+		long wallStart = System.nanoTime();
+
+		T out = task.call();
+
+		long wall = System.nanoTime() - wallStart;
+		long cpu = cpuStart >= 0 ? cpuTime() - cpuStart : -1;
+		long allocated = allocatedStart >= 0 ? allocated() - allocatedStart : -1;
+
+		Sample sample = new Sample(mod, listener.getClass().getName(), kind, wallStart - queuedAt, wall, cpu, allocated);
+		samples.add(sample);
+
+		if (wall >= SLOW_LISTENER) {
+			ModLoader.LOGGER.warn("{} {} from {} took {} to run{}", kind.description, sample.listener, describe(mod), millis(wall), kind.mainThread ? " on the main thread" : "");
+		}
+
+		return out;
+	}
+
+	private static String describe(ModMetadata mod) {
+		return mod != null ? mod.getFriendlyName() + " (" + mod.getId() + ')' : "an unknown mod";
+	}
+
+	static String millis(long nanos) {
+		return String.format("%.1fms", nanos / 1_000_000D);
+	}
+
+	static String megabytes(long bytes) {
+		return String.format("%.1fMB", bytes / (1024D * 1024D));
+	}
+
+	/** Log a summary of where the time was spent, split by which thread it was spent on */
+	void report() {
+		if (!ENABLED) return;
+		long total = System.nanoTime() - start;
+		List<Sample> samples = new ArrayList<>(this.samples);
+
+		Map<Kind, Total> kinds = new EnumMap<>(Kind.class);
+		for (Sample sample : samples) {
+			kinds.computeIfAbsent(sample.kind, k -> new Total()).add(sample);
+		}
+		long mainThread = kinds.entrySet().stream().filter(entry -> entry.getKey().mainThread).mapToLong(entry -> entry.getValue().wall).sum();
+
+		StringBuilder out = new StringBuilder("Game startup listeners took ").append(millis(total)).append(", of which the main thread spent ");
+		out.append(millis(mainThread)).append(" running listeners and ").append(millis(Math.max(total - mainThread, 0))).append(" waiting on async ones");
+		for (Entry<Kind, Total> entry : kinds.entrySet()) {
+			out.append("\n\t").append(entry.getKey().description).append("s: ").append(entry.getValue());
+		}
+
+		out.append("\nOn the main thread:");
+		appendByMod(out, samples, true);
+		out.append("\nOff the main thread:");
+		appendByMod(out, samples, false);
+
+		out.append("\nSlowest listeners:");
+		samples.stream().sorted(Comparator.comparingLong((Sample sample) -> sample.wall).reversed()).limit(SLOWEST_SHOWN).forEachOrdered(sample -> {
+			out.append("\n\t").append(sample.kind.description).append(' ').append(sample.listener).append(" from ").append(describe(sample.mod)).append(": ").append(millis(sample.wall));
+			out.append(" wall, ").append(sample.cpu >= 0 ? millis(sample.cpu) : "?").append(" CPU, ");
+			out.append(sample.allocated >= 0 ? megabytes(sample.allocated) : "?").append(" allocated, queued for ").append(millis(sample.queued));
+		});
+
+		ModLoader.LOGGER.info(out.toString());
+	}
+
+	private static void appendByMod(StringBuilder out, List<Sample> samples, boolean mainThread) {
+		Map<ModMetadata, Total> mods = new LinkedHashMap<>();
+		for (Sample sample : samples) {
+			if (sample.kind.mainThread == mainThread) mods.computeIfAbsent(sample.mod, mod -> new Total()).add(sample);
+		}
+
+		if (mods.isEmpty()) {
+			out.append(" nothing");
+		} else {
+			mods.entrySet().stream().sorted(Comparator.comparingLong((Entry<ModMetadata, Total> entry) -> entry.getValue().wall).reversed()).forEachOrdered(entry -> {
+				out.append("\n\t").append(describe(entry.getKey())).append(": ").append(entry.getValue());
+			});
+		}
+	}
+}
\ No newline at end of file
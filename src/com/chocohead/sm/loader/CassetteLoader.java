@@ -1,6 +1,5 @@
 package com.chocohead.sm.loader;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,7 +11,12 @@ import java.net.URLStreamHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.Permission;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
@@ -21,31 +25,64 @@ import net.fabricmc.loader.api.FabricLoader;
 
 import com.chocohead.cassette.Cassette;
 import com.chocohead.cassette.CassetteReader.CassetteFile;
+import com.chocohead.cassette.CassetteTrack;
+import com.chocohead.cassette.MappedCassette;
 import com.chocohead.mm.api.ClassTinkerers;
 
 @PreMixinClassloaded
 class CassetteLoader {
+	/** A single cassette, which only holds onto its tracks whilst they are being read so nothing stays on the heap once a class is defined */
 	@PreMixinClassloaded
 	private static class CassetteSlot extends URLStreamHandler {
 		private static final boolean DEBUG = Boolean.getBoolean("chocohead.sm.slot.debug");
-		private final Map<String, byte[]> tracks;
+		final MappedCassette tape;
+		private final CassetteStats stats;
+		final URL root;
+
+		public CassetteSlot(String host, MappedCassette tape, int tracks, long storedBytes) {
+			if (DEBUG) for (CassetteFile file : tape.getTracks()) if (!file.negative) PreLoader.LOGGER.info("Know of /" + file.name);
+			this.tape = tape;
+			stats = CassetteStats.create(host, tracks, storedBytes);
 
-		public static URL engauge(String host, Map<String, byte[]> holes) {
 			try {
-				return new URL("salts_mill", host, -1, "/", new CassetteSlot(holes));
+				root = new URL("salts_mill", host, -1, "/", this);
 			} catch (MalformedURLException e) {
 				throw new RuntimeException("Problem enguaging track head", e);
 			}
 		}
 
-		public CassetteSlot(Map<String, byte[]> tracks) {
-			if (DEBUG) for (String name : tracks.keySet()) PreLoader.LOGGER.info("Know of " + name);
-			this.tracks = tracks;
+		boolean contains(String path) {
+			return path.startsWith("/") && tape.find(path.substring(1)) != null;
+		}
+
+		/** Opens the track at the given path fresh from the mapped cassette, or {@code null} if there isn't one */
+		private CassetteTrack find(String path) {
+			if (!path.startsWith("/")) return null;
+
+			CassetteFile file = tape.find(path.substring(1));
+			return file != null ? tape.open(file) : null;
+		}
+
+		/** Opens every track which isn't a class, as they are the only ones which might be resources */
+		Map<String, CassetteTrack> openResources() {
+			Builder<String, CassetteTrack> resources = ImmutableMap.builder();
+
+			for (CassetteFile file : tape.getTracks()) {
+				if (!file.negative && !file.name.endsWith(".class")) resources.put('/' + file.name, tape.open(file));
+			}
+
+			return resources.build();
 		}
 
 		@Override
 		protected URLConnection openConnection(URL url) throws IOException {
-			byte[] track = tracks.get(url.getPath());
+			return connect(url);
+		}
+
+		URLConnection connect(URL url) {
+			long start = System.nanoTime();
+			CassetteTrack track = find(url.getPath());
+			stats.recordLookup(url.getPath(), track != null, System.nanoTime() - start);
 			if (DEBUG) PreLoader.LOGGER.info((track != null ? "Succeeded" : "Tried") + " to load from " + url.getPath() + " (part of " + url + ')');
 			return track != null ? new URLConnection(url) {
 				@Override
@@ -55,16 +92,70 @@ class CassetteLoader {
 
 				@Override
 				public void connect() throws IOException {
-					throw new UnsupportedOperationException();
+					connected = true; //Nothing to actually connect to, the track is already mapped
+				}
+
+				@Override
+				public int getContentLength() {
+					long size = track.size();
+					return size <= Integer.MAX_VALUE ? (int) size : -1;
+				}
+
+				@Override
+				public long getContentLengthLong() {
+					return track.size(); //Lets class loaders read the whole track into an exactly sized array
 				}
 
 				@Override
 				public InputStream getInputStream() throws IOException {
-					return new ByteArrayInputStream(track);
+					return stats.count(track.openStream()); //Streams (and inflates) straight out of the mapped cassette
 				}
 			} : null;
 		}
 	}
+	/** The single classpath entry for every cassette, passing each lookup straight to the cassette which has it */
+	@PreMixinClassloaded
+	private static class CassetteDeck extends URLStreamHandler {
+		private final Map<String, CassetteSlot> index;
+		private final CassetteStats stats;
+
+		public static URL engauge(List<CassetteSlot> cassettes) {
+			try {
+				return new URL("salts_mill", "cassettes", -1, "/", new CassetteDeck(cassettes));
+			} catch (MalformedURLException e) {
+				throw new RuntimeException("Problem enguaging track head", e);
+			}
+		}
+
+		private CassetteDeck(List<CassetteSlot> cassettes) {
+			Map<String, CassetteSlot> index = new HashMap<>();
+			long storedBytes = 0;
+
+			for (CassetteSlot cassette : cassettes) {
+				for (CassetteFile file : cassette.tape.getTracks()) {
+					if (file.negative) continue;
+
+					if (index.putIfAbsent('/' + file.name, cassette) == null) {//Earlier cassettes win, as they would have on the classpath
+						storedBytes += file.storedSize;
+					}
+				}
+			}
+
+			this.index = index;
+			stats = CassetteStats.create("All cassettes", index.size(), storedBytes);
+		}
+
+		@Override
+		protected URLConnection openConnection(URL url) throws IOException {
+			long start = System.nanoTime();
+			CassetteSlot cassette = index.get(url.getPath());
+			stats.recordLookup(url.getPath(), cassette != null, System.nanoTime() - start);
+			if (CassetteSlot.DEBUG && cassette == null) PreLoader.LOGGER.info("Tried to load from " + url.getPath() + " (part of " + url + ')');
+
+			return cassette != null ? cassette.connect(url) : null;
+		}
+	}
+	private static final List<CassetteSlot> CASSETTES = new ArrayList<>();
 
 	public static void loadCassettes(ResourceLoader loader) {
 		Path dir = FabricLoader.getInstance().getGameDirectory().toPath().resolve("cassettes");
@@ -89,35 +180,85 @@ class CassetteLoader {
 			throw new RuntimeException("Exception while searching for mods in '" + dir + "'!", e);
 		}
 		PreLoader.LOGGER.debug("Found {} cassettes", wavs.length);
+		LoaderEvents.Phase phase = LoaderEvents.beginPhase("Cassette loading");
 
-		for (Path wav : wavs) {
-			PreLoader.LOGGER.debug("Loading {}", wav);
-			Builder<String, byte[]> tracks = ImmutableMap.builder();
+		ExecutorService workers = WorkerThreads.create("Cassette Loader", wavs.length);
+		try {
+			List<Future<CassetteSlot>> cassettes = new ArrayList<>(wavs.length);
+			for (Path wav : wavs) {
+				cassettes.add(workers.submit(() -> readCassette(wav)));
+			}
 
-			try {
-				Cassette.readCompletely(wav, reader -> {
-					for (long i = 0, files = reader.readLong(); i < files; i++) {
-						CassetteFile file = reader.readFile();
-						if (file.negative) continue; //Not today thank you
+			//Added in the order they were found regardless of which finishes first, so which cassette wins a shared path is stable
+			for (int i = 0; i < wavs.length; i++) {
+				CassetteSlot cassette = WorkerThreads.join(cassettes.get(i));
+				PreLoader.LOGGER.debug("Successfully loaded {}", wavs[i]);
 
-						tracks.put('/' + file.name, file.contents);
-					}
-				});
-			} catch (EOFException e) {//If the file runs short early it's probably not intact
-				throw new UncheckedIOException("Error reading " + wav + ", likely a corrupt download (ie try download it again)", e);
-			} catch (IOException e) {//Otherwise it's just some other general reading problem
-				throw new UncheckedIOException("Error reading " + wav, e);
+				CASSETTES.add(cassette);
+				loader.giveFiles(cassette.openResources());
 			}
 
-			PreLoader.LOGGER.debug("Successfully loaded {}, adding to classpath", wav);
-			Map<String, byte[]> cassette = tracks.build();
+			if (!CASSETTES.isEmpty()) {//Only one entry for them all, so a lookup costs the same however many cassettes there are
+				boolean success = ClassTinkerers.addURL(CassetteDeck.engauge(CASSETTES));
+				if (!success) throw new AssertionError("Failed to insert cassettes!"); //A most terrible problem
+			}
 
-			boolean success = ClassTinkerers.addURL(CassetteSlot.engauge(wav.getFileName().toString(), cassette));
-			if (!success) throw new AssertionError("Failed to insert cassette!"); //A most terrible problem
+			loader.complete();
+		} finally {
+			workers.shutdownNow(); //Nothing left worth waiting for if something went wrong
+			LoaderEvents.end(phase, wavs.length); //Even if loading failed, as that's when knowing how long it took matters most
+		}
+	}
+
+	/**
+	 * Find every copy of the given path across all the cassettes, as the classpath only has the one which wins
+	 *
+	 * @param name The path to look for, without a leading slash
+	 *
+	 * @return URLs to the copy of the path in each cassette which has one, in the order the cassettes were loaded
+	 */
+	static List<URL> findAll(String name) {
+		List<URL> out = new ArrayList<>();
 
-			loader.giveFiles(cassette);
+		for (CassetteSlot cassette : CASSETTES) {
+			if (cassette.contains('/' + name)) {
+				try {
+					out.add(new URL(cassette.root, name));
+				} catch (MalformedURLException e) {
+					throw new IllegalArgumentException("Invalid path: " + name, e);
+				}
+			}
 		}
 
-		loader.complete();
+		return out;
+	}
+
+	private static CassetteSlot readCassette(Path wav) {
+		PreLoader.LOGGER.debug("Loading {}", wav);
+		LoaderEvents.CassetteRead event = LoaderEvents.beginCassette(wav);
+		int tracks = 0, negative = 0;
+
+		try {
+			MappedCassette tape = Cassette.map(wav);
+			long storedBytes = 0;
+
+			for (CassetteFile file : tape.getTracks()) {
+				if (file.negative) {
+					negative++;
+					continue; //Not today thank you
+				}
+
+				tracks++;
+				storedBytes += file.storedSize;
+			}
+
+			return new CassetteSlot(wav.getFileName().toString(), tape, tracks, storedBytes);
+		} catch (EOFException e) {//If the file runs short early it's probably not intact
+			throw new UncheckedIOException("Error reading " + wav + ", likely a corrupt download (ie try download it again)", e);
+		} catch (IOException e) {//Otherwise it's just some other general reading problem
+			throw new UncheckedIOException("Error reading " + wav, e);
+		} finally {
+			LoaderEvents.end(event, wav, tracks, negative);
+		}
 	}
 }
\ No newline at end of file
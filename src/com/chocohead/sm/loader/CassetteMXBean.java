@@ -0,0 +1,40 @@
+package com.chocohead.sm.loader;
+
+import java.util.List;
+
+/**
+ * Management interface for how much a single cassette is being looked up in, registered as {@code com.chocohead.sm:type=Cassette,name=<cassette>}
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+public interface CassetteMXBean {
+	/** The file name of the cassette */
+	String getCassette();
+
+	/** The number of tracks which can be looked up */
+	int getTracks();
+
+	/** The total size of the tracks as they are stored, which stays mapped (rather than on the heap) for as long as the cassette is in use */
+	long getRetainedBytes();
+
+	/** The number of times the cassette has been asked for a track */
+	long getLookups();
+
+	/** The number of lookups which found a track */
+	long getHits();
+
+	/** The number of lookups which didn't find a track */
+	long getMisses();
+
+	/** The total (decompressed) bytes read out of tracks */
+	long getBytesServed();
+
+	/** The longest any lookup has taken in nanoseconds */
+	long getSlowestLookupNanos();
+
+	/** The slowest lookups, slowest first */
+	List<String> getSlowestLookups();
+}
\ No newline at end of file
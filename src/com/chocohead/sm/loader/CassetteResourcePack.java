@@ -0,0 +1,211 @@
+package com.chocohead.sm.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.google.gson.JsonObject;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.resource.ResourcePack;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.resource.metadata.ResourceMetadataReader;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.InvalidIdentifierException;
+
+import com.chocohead.cassette.CassetteTrack;
+
+/**
+ * A resource pack of every asset and data file from the cassettes, read straight out of the mapped tracks
+ * <br>
+ * Each namespace keeps its tracks both by path for constant time lookups, and as a sorted array of paths so searching for
+ * resources only has to walk the paths which start with the prefix searched for.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+public class CassetteResourcePack implements ResourcePack {
+	private static final class Namespace {
+		final Map<String, CassetteTrack> tracks;
+		final String[] paths; //Sorted
+		final Identifier[] ids; //Matching paths
+
+		Namespace(Map<String, CassetteTrack> tracks, String[] paths, Identifier[] ids) {
+			this.tracks = tracks;
+			this.paths = paths;
+			this.ids = ids;
+		}
+	}
+	private static final String NAME = "Salts Mill Cassettes";
+	private final Map<ResourceType, Map<String, Namespace>> types = new EnumMap<>(ResourceType.class);
+	private final int size;
+
+	CassetteResourcePack(Map<String, Map<String, Map<String, CassetteTrack>>> typeToNamespace) {
+		int size = 0;
+
+		for (ResourceType type : ResourceType.values()) {
+			Map<String, Map<String, CassetteTrack>> namespaceToAssets = typeToNamespace.get(type.getDirectory());
+			if (namespaceToAssets == null) continue; //None of these apparently
+
+			assert !namespaceToAssets.isEmpty(); //Shouldn't be
+			Map<String, Namespace> namespaces = new HashMap<>();
+
+			for (Entry<String, Map<String, CassetteTrack>> entry : namespaceToAssets.entrySet()) {
+				Namespace namespace = index(type, entry.getKey(), entry.getValue());
+
+				if (namespace != null) {
+					namespaces.put(entry.getKey(), namespace);
+					size += namespace.paths.length;
+				}
+			}
+
+			if (!namespaces.isEmpty()) types.put(type, namespaces);
+		}
+
+		this.size = size;
+	}
+
+	private static Namespace index(ResourceType type, String namespace, Map<String, CassetteTrack> assets) {
+		assert !assets.isEmpty(); //Shouldn't be either
+		String[] paths = assets.keySet().toArray(new String[0]);
+		Arrays.sort(paths);
+
+		Identifier[] ids = new Identifier[paths.length];
+		int valid = 0;
+
+		for (String path : paths) {
+			try {
+				ids[valid] = new Identifier(namespace, path);
+				paths[valid++] = path;
+			} catch (InvalidIdentifierException e) {
+				assets.remove(path);
+				ModLoader.LOGGER.warn("Invalid " + describe(type) + " found in a cassette: \"" + namespace + "\":\"" + path + '"');
+			}
+		}
+
+		if (valid == 0) return null;
+		return new Namespace(assets, Arrays.copyOf(paths, valid), Arrays.copyOf(ids, valid));
+	}
+
+	private static String describe(ResourceType type) {
+		switch (type) {
+		case CLIENT_RESOURCES:
+			return "asset";
+
+		case SERVER_DATA:
+			return "datapack entry";
+
+		default:
+			return "mystical " + type; //Most mysterious
+		}
+	}
+
+	/** The number of resources in the pack */
+	int size() {
+		return size;
+	}
+
+	private CassetteTrack find(ResourceType type, Identifier id) {
+		Map<String, Namespace> namespaces = types.get(type);
+		if (namespaces == null) return null;
+
+		Namespace namespace = namespaces.get(id.getNamespace());
+		return namespace != null ? namespace.tracks.get(id.getPath()) : null;
+	}
+
+	@Override
+	public InputStream openRoot(String fileName) throws IOException {
+		if ("pack.mcmeta".equals(fileName)) {
+			JsonObject root = new JsonObject();
+			root.add("pack", createPackMetadata());
+			return new ByteArrayInputStream(root.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		throw new FileNotFoundException(fileName + " in " + NAME);
+	}
+
+	@Override
+	public InputStream open(ResourceType type, Identifier id) throws IOException {
+		CassetteTrack track = find(type, id);
+		if (track == null) throw new FileNotFoundException(type.getDirectory() + '/' + id.getNamespace() + '/' + id.getPath() + " in " + NAME);
+
+		return TrackCache.open(track);
+	}
+
+	@Override
+	public boolean contains(ResourceType type, Identifier id) {
+		return find(type, id) != null;
+	}
+
+	@Override
+	public Collection<Identifier> findResources(ResourceType type, String pathPrefix, int maxDepth, Predicate<String> pathFilter) {
+		Map<String, Namespace> namespaces = types.get(type);
+		if (namespaces == null) return Collections.emptyList();
+
+		String prefix = pathPrefix + '/';
+		List<Identifier> out = new ArrayList<>();
+
+		for (Namespace namespace : namespaces.values()) {
+			int start = Arrays.binarySearch(namespace.paths, prefix);
+			if (start < 0) start = -start - 1; //Only a directory, so the first match will be after where it would go
+
+			for (int i = start; i < namespace.paths.length && namespace.paths[i].startsWith(prefix); i++) {
+				String path = namespace.paths[i];
+
+				int name = path.lastIndexOf('/') + 1;
+				if (path.endsWith(".mcmeta")) continue; //Metadata is found alongside what it's for
+
+				int depth = 0; //Directories between the prefix and the file, as a directory pack would walk
+				for (int j = path.indexOf('/', prefix.length()); j >= 0 && j < name; j = path.indexOf('/', j + 1)) {
+					depth++;
+				}
+
+				if (depth <= maxDepth && pathFilter.test(path.substring(name))) out.add(namespace.ids[i]);
+			}
+		}
+
+		return out;
+	}
+
+	@Override
+	public Set<String> getNamespaces(ResourceType type) {
+		Map<String, Namespace> namespaces = types.get(type);
+		return namespaces != null ? Collections.unmodifiableSet(namespaces.keySet()) : Collections.emptySet();
+	}
+
+	private static JsonObject createPackMetadata() {
+		JsonObject pack = new JsonObject();
+		pack.addProperty("pack_format", SharedConstants.getGameVersion().getPackVersion());
+		pack.addProperty("description", "Resources from Salts Mill cassettes");
+		return pack;
+	}
+
+	@Override
+	public <T> T parseMetadata(ResourceMetadataReader<T> metaReader) throws IOException {
+		return "pack".equals(metaReader.getKey()) ? metaReader.fromJson(createPackMetadata()) : null;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void close() {
+		//Nothing to close, the cassettes stay mapped
+	}
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.chocohead.sm.loader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts how often a cassette is looked up in and how much is read out of it
+ * <br>
+ * Always on, as each lookup only costs a couple of {@link System#nanoTime()} calls and an uncontended counter increment.
+ * The counts are registered as a {@link CassetteMXBean} and summarised in the log every {@code chocohead.sm.slot.summaryInterval}
+ * seconds (turned off if {@code 0}), both from a background thread so neither slows loading down.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class CassetteStats implements CassetteMXBean {
+	private static final long SUMMARY_INTERVAL = Long.getLong("chocohead.sm.slot.summaryInterval", 300);
+	private static final int SLOWEST_KEPT = 10;
+	private static final List<CassetteStats> ALL = new CopyOnWriteArrayList<>();
+	private static final ScheduledExecutorService REPORTER = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "Salts Mill Cassette Stats");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+	static {
+		if (SUMMARY_INTERVAL > 0) REPORTER.scheduleWithFixedDelay(CassetteStats::summarise, SUMMARY_INTERVAL, SUMMARY_INTERVAL, TimeUnit.SECONDS);
+	}
+
+	private final String cassette;
+	private final int tracks;
+	private final long retainedBytes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder bytesServed = new LongAdder();
+	private final long[] slowestTimes = new long[SLOWEST_KEPT];
+	private final String[] slowestPaths = new String[SLOWEST_KEPT];
+	private volatile long slowThreshold; //The fastest of the slowest lookups, anything faster can skip the lock
+	private long lastLookups; //Only touched by the reporter thread
+
+	private CassetteStats(String cassette, int tracks, long retainedBytes) {
+		this.cassette = cassette;
+		this.tracks = tracks;
+		this.retainedBytes = retainedBytes;
+	}
+
+	/**
+	 * Start counting lookups for the given cassette
+	 *
+	 * @param cassette The name of the cassette
+	 * @param tracks The number of tracks in the cassette
+	 * @param retainedBytes The total stored size of the tracks
+	 *
+	 * @return The counts for the cassette
+	 */
+	static CassetteStats create(String cassette, int tracks, long retainedBytes) {
+		CassetteStats stats = new CassetteStats(cassette, tracks, retainedBytes);
+		ALL.add(stats);
+
+		REPORTER.execute(() -> {//Making the platform MBean server is slow, so is left off the loading thread
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName("com.chocohead.sm:type=Cassette,name=" + ObjectName.quote(cassette)));
+			} catch (JMException | RuntimeException e) {
+				PreLoader.LOGGER.warn("Unable to register MBean for " + cassette, e);
+			}
+		});
+
+		return stats;
+	}
+
+	/**
+	 * Record a lookup in the cassette
+	 *
+	 * @param path The path which was looked up
+	 * @param hit Whether the path was found
+	 * @param time How long the lookup took in nanoseconds
+	 */
+	void recordLookup(String path, boolean hit, long time) {
+		(hit ? hits : misses).increment();
+
+		if (time > slowThreshold) {
+			synchronized (this) {
+				int slot = SLOWEST_KEPT - 1;
+				if (time <= slowestTimes[slot]) return; //Lost a race to a slower lookup
+
+				while (slot > 0 && slowestTimes[slot - 1] < time) {
+					slowestTimes[slot] = slowestTimes[slot - 1];
+					slowestPaths[slot] = slowestPaths[slot - 1];
+					slot--;
+				}
+
+				slowestTimes[slot] = time;
+				slowestPaths[slot] = path;
+				slowThreshold = slowestTimes[SLOWEST_KEPT - 1];
+			}
+		}
+	}
+
+	/**
+	 * Count the bytes read out of the given track stream
+	 *
+	 * @param in The stream of a track's contents
+	 *
+	 * @return A stream which adds to the {@link #getBytesServed() bytes served} as it is read
+	 */
+	InputStream count(InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int out = super.read();
+				if (out >= 0) bytesServed.increment();
+				return out;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if (read > 0) bytesServed.add(read);
+				return read;
+			}
+		};
+	}
+
+	@Override
+	public String getCassette() {
+		return cassette;
+	}
+
+	@Override
+	public int getTracks() {
+		return tracks;
+	}
+
+	@Override
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+
+	@Override
+	public long getLookups() {
+		return hits.sum() + misses.sum();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long getBytesServed() {
+		return bytesServed.sum();
+	}
+
+	@Override
+	public synchronized long getSlowestLookupNanos() {
+		return slowestTimes[0];
+	}
+
+	@Override
+	public synchronized List<String> getSlowestLookups() {
+		List<String> out = new ArrayList<>(SLOWEST_KEPT);
+
+		for (int i = 0; i < SLOWEST_KEPT && slowestPaths[i] != null; i++) {
+			out.add(slowestPaths[i] + " (" + slowestTimes[i] + "ns)");
+		}
+
+		return out;
+	}
+
+	private static void summarise() {
+		for (CassetteStats stats : ALL) {
+			long lookups = stats.getLookups();
+			if (lookups == stats.lastLookups) continue; //Nothing new to say
+			stats.lastLookups = lookups;
+
+			PreLoader.LOGGER.info("{}: {} lookups ({} hits, {} misses), {} bytes served from {} tracks ({} bytes mapped), slowest lookup {}ns",
+					stats.cassette, lookups, stats.getHits(), stats.getMisses(), stats.getBytesServed(), stats.tracks, stats.retainedBytes,
+					stats.getSlowestLookupNanos());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CassetteStats[" + cassette + ']';
+	}
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.chocohead.sm.loader;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events for each part of loading, so a recording shows where the time went
+ * <br>
+ * Older Java 8 versions don't have the event API at all, so the events are only ever made (or even loaded) if it is there.
+ * Each {@code begin} method gives {@code null} when it isn't, which the matching {@code end} method quietly ignores.
+ * The events can also be turned off with the {@code chocohead.sm.jfr.disable} system property.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class LoaderEvents {
+	@Name("chocohead.sm.LoaderPhase")
+	@Label("Loader Phase")
+	@Category("Salts Mill")
+	@Description("A stage of loading mods")
+	static final class Phase extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Items")
+		@Description("How many things were done in the phase")
+		int items;
+	}
+
+	@Name("chocohead.sm.CassetteRead")
+	@Label("Cassette Read")
+	@Category("Salts Mill")
+	@Description("Mapping a cassette and indexing its tracks")
+	static final class CassetteRead extends Event {
+		@Label("Cassette")
+		String cassette;
+
+		@Label("Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Tracks")
+		int tracks;
+
+		@Label("Negative Tracks")
+		@Description("Tracks which were skipped")
+		int negativeTracks;
+	}
+
+	@Name("chocohead.sm.ModXmlRead")
+	@Label("Mod XML Read")
+	@Category("Salts Mill")
+	@Description("Reading the mods defined in a mod XML")
+	static final class ModXmlRead extends Event {
+		@Label("XML")
+		String xml;
+
+		@Label("Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Mods")
+		int mods;
+
+		@Label("Cached")
+		@Description("Whether the mods came from the mod cache rather than parsing the XML")
+		boolean cached;
+	}
+
+	@Name("chocohead.sm.ResourceLoading")
+	@Label("Resource Loading")
+	@Category("Salts Mill")
+	@Description("Collecting the resources from every cassette and registering them")
+	static final class ResourceLoading extends Event {
+		@Label("Tracks")
+		int tracks;
+
+		@Label("Resources")
+		int resources;
+
+		@Label("Cassette Wait")
+		@Description("Time spent waiting for cassettes to be read")
+		@Timespan
+		long cassetteWait;
+
+		@Label("Mixin Wait")
+		@Description("Time spent waiting for it to be safe to load Minecraft classes")
+		@Timespan
+		long mixinWait;
+	}
+
+	static final boolean ENABLED = !Boolean.getBoolean("chocohead.sm.jfr.disable") && isAvailable();
+
+	private LoaderEvents() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, LoaderEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	static Phase beginPhase(String name) {
+		if (!ENABLED) return null;
+
+		Phase event = new Phase();
+		event.phase = name;
+		event.begin();
+		return event;
+	}
+
+	static void end(Phase event, int items) {
+		if (event != null) {
+			event.items = items;
+			event.commit();
+		}
+	}
+
+	static CassetteRead beginCassette(Path cassette) {
+		if (!ENABLED) return null;
+
+		CassetteRead event = new CassetteRead();
+		event.cassette = cassette.toString();
+		event.begin();
+		return event;
+	}
+
+	static void end(CassetteRead event, Path cassette, int tracks, int negativeTracks) {
+		if (event != null) {
+			event.end(); //Don't count finding the size
+
+			if (event.shouldCommit()) {
+				try {
+					event.bytes = Files.size(cassette);
+				} catch (IOException e) {
+					event.bytes = -1;
+				}
+				event.tracks = tracks;
+				event.negativeTracks = negativeTracks;
+				event.commit();
+			}
+		}
+	}
+
+	static ModXmlRead beginModXml(URL xml) {
+		if (!ENABLED) return null;
+
+		ModXmlRead event = new ModXmlRead();
+		event.xml = xml.toExternalForm();
+		event.bytes = -1;
+		event.begin();
+		return event;
+	}
+
+	static void end(ModXmlRead event, long bytes, int mods, boolean cached) {
+		if (event != null) {
+			event.bytes = bytes;
+			event.mods = mods;
+			event.cached = cached;
+			event.commit();
+		}
+	}
+
+	static ResourceLoading beginResourceLoading() {
+		if (!ENABLED) return null;
+
+		ResourceLoading event = new ResourceLoading();
+		event.begin();
+		return event;
+	}
+
+	static void end(ResourceLoading event, int tracks, int resources, long cassetteWait, long mixinWait) {
+		if (event != null) {
+			event.tracks = tracks;
+			event.resources = resources;
+			event.cassetteWait = cassetteWait;
+			event.mixinWait = mixinWait;
+			event.commit();
+		}
+	}
+}
\ No newline at end of file
@@ -39,7 +39,7 @@ class ModBuilder {
 	private final ImmutableList.Builder<DescriptivePerson> authors = ImmutableList.builder();
 	private final ImmutableList.Builder<DescriptivePerson> contributors = ImmutableList.builder();
 
-	private final Map<String, List<String>> listeners = new HashMap<>(); //Deliberately mutable
+	private final Map<String, List<String>> listeners = new HashMap<>();
 	private final ImmutableList.Builder<String> mixins = ImmutableList.builder();
 
 	private final ImmutableList.Builder<ModDependency> depends = ImmutableList.builder();
@@ -0,0 +1,498 @@
+package com.chocohead.sm.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.io.ByteStreams;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.SemanticVersion;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.util.version.VersionParsingException;
+
+import com.chocohead.sm.api.DescriptivePerson;
+import com.chocohead.sm.api.PersonalContact;
+import com.chocohead.sm.api.ProjectContact;
+import com.chocohead.sm.impl.SimpleModDependency;
+import com.chocohead.sm.impl.SortedModDependency;
+import com.chocohead.sm.impl.SortedModDependency.Ordered;
+import com.chocohead.sm.loader.ModBuilder.ContactBuilder;
+import com.chocohead.sm.loader.ModBuilder.PersonBuilder;
+
+/**
+ * On disk cache of the mods {@link ModParser#read(InputStream, EnvType) parsed} from each mod XML, so unchanged mods can skip the XML parser entirely
+ * <br>
+ * Entries are keyed by where the XML came from and which side is running, and only used whilst the XML's contents hash the same.
+ * The mods are stored as the sequence of {@link ModBuilder} calls needed to build them again, rather than anything which would need classloading.
+ * <br>
+ * Can be turned off by setting {@code chocohead.sm.modCache.disable} to {@code true}
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class ModCache {
+	private static final boolean DISABLED = Boolean.getBoolean("chocohead.sm.modCache.disable");
+	private static final int MAGIC = 0x534D4D43; //SMMC
+	private static final int VERSION = 1;
+	//Dependency kinds
+	private static final byte UNORDERED = 0, BEFORE = 1, AFTER = 2;
+
+	private static final class CachedMods {
+		final byte[] hash;
+		final byte[] mods;
+
+		CachedMods(byte[] hash, byte[] mods) {
+			this.hash = hash;
+			this.mods = mods;
+		}
+	}
+
+	private final Path file;
+	private final Map<String, CachedMods> previous;
+	private final Map<String, CachedMods> current = new ConcurrentHashMap<>();
+	private volatile boolean changed;
+
+	private ModCache(Path file, Map<String, CachedMods> previous) {
+		this.file = file;
+		this.previous = previous;
+	}
+
+	/**
+	 * Load the cache from the given file, starting afresh if it is missing or unreadable
+	 *
+	 * @param file Where the cache is kept
+	 *
+	 * @return The loaded cache, which will do nothing if caching has been turned off
+	 */
+	static ModCache load(Path file) {
+		if (DISABLED) {
+			PreLoader.LOGGER.debug("Mod cache is disabled");
+			return new ModCache(null, null);
+		}
+
+		Map<String, CachedMods> previous = new ConcurrentHashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				PreLoader.LOGGER.info("Ignoring mod cache from a different version");
+			} else {
+				for (int entries = in.readInt(); entries > 0; entries--) {
+					String key = readString(in);
+					byte[] hash = readBytes(in);
+					byte[] mods = readBytes(in);
+
+					previous.put(key, new CachedMods(hash, mods));
+				}
+
+				PreLoader.LOGGER.debug("Loaded {} cached mod XMLs", previous.size());
+			}
+		} catch (NoSuchFileException e) {
+			PreLoader.LOGGER.debug("No mod cache found at {}", file);
+		} catch (IOException e) {
+			PreLoader.LOGGER.warn("Unable to read mod cache at " + file + ", starting afresh", e);
+			previous.clear(); //Don't trust anything from a broken cache
+		}
+
+		return new ModCache(file, previous);
+	}
+
+	/**
+	 * Read the mods defined by the given mod XML, either from the cache if the XML is unchanged or by parsing it otherwise
+	 * <br>
+	 * Safe to call from multiple threads at once, so long as each mod XML is only read once
+	 *
+	 * @param xml Where the mod XML is
+	 * @param side The side which the mods are being loaded for
+	 *
+	 * @return The mods defined in the given XML
+	 *
+	 * @throws IOException If there is a problem reading the XML
+	 */
+	Set<ModMetadata> read(URL xml, EnvType side) throws IOException {
+		LoaderEvents.ModXmlRead event = LoaderEvents.beginModXml(xml);
+
+		if (file == null) {
+			try (InputStream in = xml.openStream()) {
+				Set<ModMetadata> mods = ModParser.read(in, side);
+				LoaderEvents.end(event, -1, mods.size(), false);
+				return mods;
+			}
+		}
+
+		byte[] contents;
+		try (InputStream in = xml.openStream()) {
+			contents = ByteStreams.toByteArray(in);
+		}
+		byte[] hash = hash(contents);
+
+		String key = side.name() + ' ' + xml.toExternalForm();
+		CachedMods cached = previous.get(key);
+		if (cached != null && Arrays.equals(hash, cached.hash)) {
+			try {
+				Set<ModMetadata> mods = readMods(cached.mods);
+				current.put(key, cached);
+				LoaderEvents.end(event, contents.length, mods.size(), true);
+				return mods;
+			} catch (IOException | RuntimeException e) {
+				PreLoader.LOGGER.warn("Unable to use cached mods for " + xml + ", parsing again", e);
+			}
+		}
+
+		Set<ModMetadata> mods = ModParser.read(new ByteArrayInputStream(contents), side);
+		current.put(key, new CachedMods(hash, writeMods(mods))); //Written straight away so it is never out of sync
+		changed = true;
+		LoaderEvents.end(event, contents.length, mods.size(), false);
+		return mods;
+	}
+
+	/**
+	 * Write the cache back to disk if anything has changed since it was {@link #load(Path) loaded}
+	 * <br>
+	 * Only the mod XMLs which have been {@link #read(URL, EnvType) read} since then will be kept
+	 */
+	void save() {
+		if (file == null || !changed && current.size() == previous.size()) return;
+
+		try {
+			Files.createDirectories(file.getParent());
+			Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+
+					out.writeInt(current.size());
+					for (Entry<String, CachedMods> entry : current.entrySet()) {
+						writeString(out, entry.getKey());
+						writeBytes(out, entry.getValue().hash);
+						writeBytes(out, entry.getValue().mods);
+					}
+				}
+
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+
+			PreLoader.LOGGER.debug("Saved {} mod XMLs to the mod cache", current.size());
+		} catch (IOException e) {
+			PreLoader.LOGGER.warn("Unable to save mod cache to " + file, e);
+		}
+	}
+
+	private static byte[] hash(byte[] contents) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(contents);
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError("Every JVM should support SHA-1", e);
+		}
+	}
+
+	private static byte[] writeMods(Collection<ModMetadata> mods) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(mods.size());
+
+			for (ModMetadata mod : mods) {
+				writeString(out, mod.getId());
+				writeString(out, mod.getVersion().getFriendlyString());
+				writeString(out, mod.getName());
+				writeString(out, mod.getDescription());
+				writeString(out, mod.getLicenseName());
+				writeString(out, mod.getIconPath().orElse(null));
+
+				ProjectContact contact = mod.getContact();
+				writeString(out, toString(contact.getIssues()));
+				writeString(out, toString(contact.getSource()));
+				writeString(out, toString(contact.getHomepage()));
+				writeString(out, toString(contact.getIRC()));
+				writeString(out, contact.getDiscord());
+				writeExtras(out, contact.asMap(), contact.getDefinitions());
+
+				writePeople(out, mod.getDescriptiveAuthors());
+				writePeople(out, mod.getDescriptiveContributors());
+
+				Map<String, List<String>> listeners = mod.getListenerNames();
+				out.writeInt(listeners.size());
+				for (Entry<String, List<String>> entry : listeners.entrySet()) {
+					writeString(out, entry.getKey());
+					writeStrings(out, entry.getValue());
+				}
+
+				writeStrings(out, mod.getMixinConfigs());
+
+				writeDependencies(out, mod.getDepends());
+				writeDependencies(out, mod.getRecommends());
+				writeDependencies(out, mod.getSuggests());
+				writeDependencies(out, mod.getConflicts());
+				writeDependencies(out, mod.getBreaks());
+
+				Map<String, String> custom = mod.getAllCustomData();
+				out.writeInt(custom.size());
+				for (Entry<String, String> entry : custom.entrySet()) {
+					writeString(out, entry.getKey());
+					writeString(out, entry.getValue());
+				}
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static void writePeople(DataOutput out, Collection<DescriptivePerson> people) throws IOException {
+		out.writeInt(people.size());
+
+		for (DescriptivePerson person : people) {
+			writeString(out, person.getName());
+
+			PersonalContact contact = person.getContact();
+			writeString(out, toString(contact.getHomepage()));
+			writeString(out, toString(contact.getEmail()));
+			writeString(out, toString(contact.getIRC()));
+			writeString(out, contact.getTwitter());
+			writeString(out, contact.getDiscord());
+			writeExtras(out, contact.asMap(), contact.getDefinitions());
+		}
+	}
+
+	private static void writeExtras(DataOutput out, Map<String, String> all, String[] predefined) throws IOException {
+		Set<String> definitions = new HashSet<>(Arrays.asList(predefined));
+
+		out.writeInt((int) all.keySet().stream().filter(key -> !definitions.contains(key)).count());
+		for (Entry<String, String> entry : all.entrySet()) {
+			if (definitions.contains(entry.getKey())) continue;
+
+			writeString(out, entry.getKey());
+			writeString(out, entry.getValue());
+		}
+	}
+
+	private static void writeDependencies(DataOutput out, Collection<ModDependency> dependencies) throws IOException {
+		out.writeInt(dependencies.size());
+
+		for (ModDependency dependency : dependencies) {
+			SimpleModDependency simple = (SimpleModDependency) dependency; //Only thing ModBuilder makes
+
+			if (simple instanceof SortedModDependency) {
+				out.writeByte(((SortedModDependency) simple).getOrdering() == Ordered.BEFORE ? BEFORE : AFTER);
+			} else {
+				out.writeByte(UNORDERED);
+			}
+			writeString(out, simple.getModId());
+			writeString(out, simple.getModType());
+		}
+	}
+
+	private static Set<ModMetadata> readMods(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		int count = in.readInt();
+		Set<ModMetadata> mods = new HashSet<>();
+
+		for (int i = 0; i < count; i++) {
+			String id = readString(in);
+			ModBuilder builder;
+			try {
+				builder = new ModBuilder(id, SemanticVersion.parse(readString(in)));
+			} catch (VersionParsingException e) {
+				throw new IOException("Invalid cached version for " + id, e);
+			}
+
+			String name = readString(in);
+			if (name != null) builder.withName(name);
+			String description = readString(in);
+			if (description != null) builder.withDescription(description);
+			String license = readString(in);
+			if (license != null) builder.withLicense(license);
+			String icon = readString(in);
+			if (icon != null) builder.withIcon(icon);
+
+			ContactBuilder contact = builder.withProjectContacts();
+			URL url = readURL(in);
+			if (url != null) contact.withIssues(url);
+			url = readURL(in);
+			if (url != null) contact.withSource(url);
+			url = readURL(in);
+			if (url != null) contact.withHomepage(url);
+			URI irc = readURI(in);
+			if (irc != null) contact.withIRC(irc);
+			String discord = readString(in);
+			if (discord != null) contact.withDiscord(discord);
+			for (int extras = in.readInt(); extras > 0; extras--) {
+				contact.withExtra(readString(in), readString(in));
+			}
+			contact.butNotMore();
+
+			for (int authors = in.readInt(); authors > 0; authors--) {
+				readPerson(in, builder.withAuthor(readString(in)));
+			}
+			for (int contributors = in.readInt(); contributors > 0; contributors--) {
+				readPerson(in, builder.withContributor(readString(in)));
+			}
+
+			for (int types = in.readInt(); types > 0; types--) {
+				String type = readString(in);
+
+				for (int listeners = in.readInt(); listeners > 0; listeners--) {
+					builder.withListener(type, readString(in));
+				}
+			}
+
+			for (int mixins = in.readInt(); mixins > 0; mixins--) {
+				builder.withMixinConfig(readString(in));
+			}
+
+			readDependencies(in, builder::withDependency, builder::withOrderedDependency);
+			readDependencies(in, (modID, type) -> builder.withSuggestion(modID, type, true), (modID, type, ordering) -> builder.withOrderedSuggestion(modID, type, ordering, true));
+			readDependencies(in, (modID, type) -> builder.withSuggestion(modID, type, false), (modID, type, ordering) -> builder.withOrderedSuggestion(modID, type, ordering, false));
+			readDependencies(in, (modID, type) -> builder.withConflict(modID, type, false), (modID, type, ordering) -> builder.withOrderedConflict(modID, type, ordering, false));
+			readDependencies(in, (modID, type) -> builder.withConflict(modID, type, true), (modID, type, ordering) -> builder.withOrderedConflict(modID, type, ordering, true));
+
+			for (int custom = in.readInt(); custom > 0; custom--) {
+				builder.withCustomData(readString(in), readString(in));
+			}
+
+			mods.add(builder.build());
+		}
+
+		if (in.read() != -1) throw new IOException("Cached mods continue past the end");
+		return mods;
+	}
+
+	private static void readPerson(DataInput in, PersonBuilder person) throws IOException {
+		URL url = readURL(in);
+		if (url != null) person.withHomepage(url);
+		url = readURL(in);
+		if (url != null) person.withEmail(url);
+		URI irc = readURI(in);
+		if (irc != null) person.withIRC(irc);
+		String twitter = readString(in);
+		if (twitter != null) person.withTwitter(twitter);
+		String discord = readString(in);
+		if (discord != null) person.withDiscord(discord);
+		for (int extras = in.readInt(); extras > 0; extras--) {
+			person.withExtra(readString(in), readString(in));
+		}
+
+		person.butNotMore();
+	}
+
+	private interface DependencyAdder {
+		void add(String modID, String type);
+	}
+
+	private interface OrderedDependencyAdder {
+		void add(String modID, String type, Ordered ordering);
+	}
+
+	private static void readDependencies(DataInput in, DependencyAdder unordered, OrderedDependencyAdder ordered) throws IOException {
+		for (int dependencies = in.readInt(); dependencies > 0; dependencies--) {
+			byte kind = in.readByte();
+			String modID = readString(in);
+			String type = readString(in);
+
+			switch (kind) {
+			case UNORDERED:
+				unordered.add(modID, type);
+				break;
+
+			case BEFORE:
+				ordered.add(modID, type, Ordered.BEFORE);
+				break;
+
+			case AFTER:
+				ordered.add(modID, type, Ordered.AFTER);
+				break;
+
+			default:
+				throw new IOException("Unexpected dependency kind: " + kind);
+			}
+		}
+	}
+
+	private static String toString(Object value) {
+		return value instanceof URL ? ((URL) value).toExternalForm() : value != null ? value.toString() : null;
+	}
+
+	private static URL readURL(DataInput in) throws IOException {
+		String url = readString(in);
+		return url != null ? new URL(url) : null;
+	}
+
+	private static URI readURI(DataInput in) throws IOException {
+		String uri = readString(in);
+
+		try {
+			return uri != null ? new URI(uri) : null;
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid cached URI: " + uri, e);
+		}
+	}
+
+	private static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+		out.writeInt(values.size());
+
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		//Not using writeUTF as it can't go past 64k, which a description conceivably could
+		writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		byte[] bytes = readBytes(in);
+		return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	private static void writeBytes(DataOutput out, byte[] value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(value.length);
+			out.write(value);
+		}
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			if (length == -1) return null;
+			throw new IOException("Negative length: " + length);
+		}
+
+		byte[] out = new byte[length];
+		in.readFully(out);
+		return out;
+	}
+}
\ No newline at end of file
@@ -4,11 +4,9 @@ import java.io.File;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,54 +14,88 @@ import org.apache.logging.log4j.Logger;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
-import net.fabricmc.loader.api.entrypoint.PreLaunchEntrypoint;
+import net.minecraft.resource.ResourcePack;
 
-import net.devtech.rrp.entrypoint.RRPPreGenEntrypoint;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.entrypoint.PreLaunchEntrypoint;
 
 import com.chocohead.sm.api.SaltsModMetadata;
 
-public class ModLoader implements PreLaunchEntrypoint, RRPPreGenEntrypoint {
-	private enum TitusThreadFactory implements ThreadFactory {
-		INSTANCE;
-
-		@Override
-		public Thread newThread(Runnable task) {
-			Thread thread = new Thread(group, task, "Salts-Mill-Worker: " + number.getAndIncrement());
-
-			thread.setDaemon(true);
-			thread.setPriority(Thread.NORM_PRIORITY);
-
-			return thread;
-		}
-
-		private final ThreadGroup group = Thread.currentThread().getThreadGroup();
-		private static final AtomicInteger number = new AtomicInteger(1);
-	}
+public class ModLoader implements PreLaunchEntrypoint {
 	public static final Logger LOGGER = LogManager.getLogger();
-	public static final ListeningExecutorService THREAD_POOL = MoreExecutors.listeningDecorator(new ThreadPoolExecutor(0, Math.max(Runtime.getRuntime().availableProcessors() * 2, 4),
-																								30L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), TitusThreadFactory.INSTANCE));
-
-	@Override
-	public void register() {
-		try {
-			PreLoader.resourceLoader.join(); //Block until we're done loading in all the cassettes
-		} catch (InterruptedException e) {
-			throw new RuntimeException("Unexpected interruption", e);
+	private static final WorkStealingExecutor WORKERS = WorkStealingExecutor.create();
+	public static final ListeningExecutorService THREAD_POOL = WORKERS;
+	private static final ListeningExecutorService VIRTUAL_THREADS = createVirtualThreadPool();
+	private static CassetteResourcePack cassettePack;
+
+	private static ListeningExecutorService createVirtualThreadPool() {
+		if (Boolean.getBoolean("chocohead.sm.virtualThreads.disable")) return null;
+
+		try {//Only exists from Java 21, so has to be found reflectively whilst targeting Java 8
+			return MoreExecutors.listeningDecorator((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+		} catch (NoSuchMethodException e) {
+			return null; //Too old a Java version
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Unable to create virtual thread pool", e); //Most likely a preview feature which isn't turned on
+			return null;
 		}
-
-		PreLoader.resourceLoader = null; //All done, no more need for this
 	}
 
 	@Override
 	public void onPreLaunch() {
 		PreLoader.resourceLoader.clearClassLoading();
+
+		if (!FabricLoader.getInstance().isModLoaded("fabric-resource-loader-v0")) {
+			LOGGER.warn("Fabric resource loader (fabric-resource-loader-v0) is missing, any assets or data in cassettes won't be loaded");
+		}
+	}
+
+	/**
+	 * Start loading the classes of every mod's listeners in the background, so it's not done whilst the game is waiting for them
+	 * <br>
+	 * Only safe once the Mixin transformer has finished setting up, turned off by {@code chocohead.sm.listenerWarming.disable}
+	 */
+	public static void warmListeners() {
+		if (Boolean.getBoolean("chocohead.sm.listenerWarming.disable")) return;
+
+		THREAD_POOL.execute(() -> {
+			for (ModMetadata mod : PreLoader.MODS) {
+				mod.warmListeners();
+			}
+		});
 	}
 
 	public static List<ModMetadata> getMods() {
 		return Collections.unmodifiableList(PreLoader.MODS);
 	}
 
+	/** The pool behind {@link #THREAD_POOL}, for seeing how busy it is */
+	public static WorkStealingExecutor getThreadPool() {
+		return WORKERS;
+	}
+
+	/**
+	 * A pool which runs every task on its own virtual thread, for tasks which spend most of their time blocking
+	 *
+	 * @return The pool, or {@link Optional#empty() empty} if the running Java version doesn't support virtual threads
+	 *
+	 * @since 0.5
+	 */
+	public static Optional<ListeningExecutorService> getVirtualThreadPool() {
+		return Optional.ofNullable(VIRTUAL_THREADS);
+	}
+
 	public static List<Entry<SaltsModMetadata, File>> getExtraResourcePacks() {
 		return Collections.unmodifiableList(PreLoader.EXTRA_RESOURCE_PACKS);
 	}
+
+	/** The resource pack of every asset and data file in the cassettes, waiting for them all to be indexed if they're not yet */
+	public static synchronized ResourcePack getCassetteResourcePack() {
+		if (cassettePack == null) {
+			cassettePack = PreLoader.resourceLoader.awaitPack();
+			PreLoader.resourceLoader = null; //All done, no more need for this
+		}
+
+		return cassettePack;
+	}
 }
\ No newline at end of file
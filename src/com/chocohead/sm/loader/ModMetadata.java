@@ -1,18 +1,22 @@
 package com.chocohead.sm.loader;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.metadata.ModDependency;
@@ -34,8 +38,7 @@ public class ModMetadata implements SaltsModMetadata {
 	private final Collection<DescriptivePerson> authors;
 	private final Collection<DescriptivePerson> contributors;
 
-	private final Map<Class<? extends Object>, List<? extends Object>> realListeners = new IdentityHashMap<>();
-	private final Map<String, List<String>> protoListeners;
+	private final Map<String, Listeners> listeners;
 	private final List<String> mixins;
 
 	private final Collection<ModDependency> depends;
@@ -45,6 +48,7 @@ public class ModMetadata implements SaltsModMetadata {
 	private final Collection<ModDependency> breaks;
 
 	private final Map<String, String> custom;
+	private final Set<String> modsBefore, modsAfter;
 
 	ModMetadata(String id, String name, String description, SemanticVersion version, String license, String iconPath,
 			ProjectContact contact, Collection<DescriptivePerson> authors, Collection<DescriptivePerson> contributors,
@@ -60,7 +64,7 @@ public class ModMetadata implements SaltsModMetadata {
 		this.contact = contact;
 		this.authors = authors;
 		this.contributors = contributors;
-		protoListeners = listeners;
+		this.listeners = listeners.entrySet().stream().collect(ImmutableMap.toImmutableMap(Entry::getKey, entry -> new Listeners(entry.getValue())));
 		this.mixins = mixins;
 		this.depends = depends;
 		this.recommends = recommends;
@@ -68,6 +72,9 @@ public class ModMetadata implements SaltsModMetadata {
 		this.conflicts = conflicts;
 		this.breaks = breaks;
 		this.custom = custom;
+
+		modsBefore = modsOrdered(Ordered.BEFORE);
+		modsAfter = modsOrdered(Ordered.AFTER);
 	}
 
 	@Override
@@ -115,32 +122,97 @@ public class ModMetadata implements SaltsModMetadata {
 		return contact;
 	}
 
-	@SuppressWarnings("unchecked") //Much lying needs to be done to the compiler
-	public <T> List<? extends T> getListeners(Class<T> type) {
-		List<?> listeners = realListeners.get(type);
-		if (listeners != null) return (List<? extends T>) listeners;
+	/**
+	 * The listeners of a single type a mod has, which are only made the first time they are asked for
+	 */
+	private static final class Listeners {
+		private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+			@Override
+			protected MethodHandle computeValue(Class<?> type) {
+				try {
+					return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalArgumentException("No public no-args constructor for " + type, e);
+				}
+			}
+		};
+		final List<String> classNames;
+		private volatile List<?> instances;
+		private Class<?> type;
+
+		Listeners(List<String> classNames) {
+			this.classNames = ImmutableList.copyOf(classNames);
+		}
+
+		List<?> get(Class<?> type, String modID) {
+			List<?> instances = this.instances;
+
+			if (instances == null) {
+				synchronized (this) {
+					if ((instances = this.instances) == null) {
+						ModLoader.LOGGER.info("Building listeners for " + type);
+						this.type = type;
+						this.instances = instances = classNames.stream().map(className -> create(type, className, modID)).collect(ImmutableList.toImmutableList());
+					}
+				}
+			}
 
-		if (!protoListeners.containsKey(type.getName())) return Collections.emptyList();
-		assert protoListeners.get(type.getName()) != null; //This would be bad
+			//Only matched the type by name, make sure it's actually the same one
+			if (this.type != type) throw new IllegalArgumentException("Listeners for " + modID + " were built as " + this.type + " not " + type);
+			return instances;
+		}
 
-		ModLoader.LOGGER.info("Building listeners for " + type);
-		listeners = protoListeners.remove(type.getName()).stream().map(className -> {
+		private static Object create(Class<?> type, String className, String modID) {
 			Class<?> listener;
 			try {
-				listener = Class.forName(className);
+				listener = Class.forName(className, true, ModMetadata.class.getClassLoader());
 			} catch (ClassNotFoundException e) {
-				throw new IllegalArgumentException("Unable to find listener " + className + " (of type " + type + ") for " + getId(), e);
+				throw new IllegalArgumentException("Unable to find listener " + className + " (of type " + type + ") for " + modID, e);
 			}
 
 			try {
-				return listener.asSubclass(type).newInstance(); //Attempt to assert the real class is right
-			} catch (ReflectiveOperationException e) {
-				throw new IllegalArgumentException("Unable to create listener " + listener + " (of type " + type + ") for " + getId(), e);
+				return (Object) CONSTRUCTORS.get(listener.asSubclass(type)).invokeExact(); //Attempt to assert the real class is right
+			} catch (Throwable t) {
+				throw new IllegalArgumentException("Unable to create listener " + listener + " (of type " + type + ") for " + modID, t);
+			}
+		}
+
+		void warm() {
+			if (instances != null) return; //Already built, nothing to gain
+
+			for (String className : classNames) {
+				try {
+					CONSTRUCTORS.get(Class.forName(className, false, ModMetadata.class.getClassLoader()));
+				} catch (Throwable t) {
+					//Doesn't matter until the listener is actually wanted, where it'll come up again
+					ModLoader.LOGGER.debug("Unable to warm listener " + className, t);
+				}
 			}
-		}).collect(Collectors.toList());
-		realListeners.put(type, listeners);
+		}
+	}
+
+	@SuppressWarnings("unchecked") //Much lying needs to be done to the compiler
+	public <T> List<? extends T> getListeners(Class<T> type) {
+		Listeners listeners = this.listeners.get(type.getName());
+		if (listeners == null) return Collections.emptyList();
+
+		return (List<? extends T>) listeners.get(type, getId());
+	}
 
-		return (List<? extends T>) listeners;
+	/**
+	 * Load the classes and find the constructors of all the listeners which haven't been {@link #getListeners(Class) built} yet, without initialising them
+	 * <br>
+	 * Safe to call whilst other threads are getting listeners, failing will only leave {@link #getListeners(Class)} to do the work instead
+	 */
+	void warmListeners() {
+		for (Listeners listeners : this.listeners.values()) {
+			listeners.warm();
+		}
+	}
+
+	/** The class names of the listeners this mod has, keyed by listener type */
+	Map<String, List<String>> getListenerNames() {
+		return Maps.transformValues(listeners, listeners -> listeners.classNames);
 	}
 
 	public List<String> getMixinConfigs() {
@@ -150,15 +222,18 @@ public class ModMetadata implements SaltsModMetadata {
 	private Set<String> modsOrdered(Ordered ordering) {
 		return Stream.of(depends, recommends, suggests, conflicts, breaks).flatMap(Collection::stream)
 				.filter(Predicates.instanceOf(SortedModDependency.class)).map(SortedModDependency.class::cast)
-				.filter(Predicate.isEqual(ordering)).map(SortedModDependency::getModId).collect(ImmutableSet.toImmutableSet());
+				.filter(dependency -> SaltsModMetadata.TYPE.equals(dependency.getModType())) //Other types of mod can't be ordered against
+				.filter(dependency -> dependency.getOrdering() == ordering).map(SortedModDependency::getModId).collect(ImmutableSet.toImmutableSet());
 	}
 
+	/** The IDs of the Salts Mill mods which should be loaded before this one */
 	public Set<String> modsBefore() {
-		return modsOrdered(Ordered.BEFORE);
+		return modsBefore;
 	}
 
+	/** The IDs of the Salts Mill mods which should be loaded after this one */
 	public Set<String> modsAfter() {
-		return modsOrdered(Ordered.AFTER);
+		return modsAfter;
 	}
 
 	@Override
@@ -191,6 +266,10 @@ public class ModMetadata implements SaltsModMetadata {
 		return Optional.ofNullable(custom.get(key));
 	}
 
+	Map<String, String> getAllCustomData() {
+		return custom;
+	}
+
 	@Override
 	public String toString() {
 		return "Salts Mod<" + getId() + '>';
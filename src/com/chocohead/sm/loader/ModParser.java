@@ -1,6 +1,7 @@
 package com.chocohead.sm.loader;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -280,17 +281,31 @@ public class ModParser {
 		return mods;
 	}
 
+	/** Each thread's own reader, as making a new one is slow and they can't be shared whilst parsing */
+	private static final ThreadLocal<XMLReader> READERS = ThreadLocal.withInitial(() -> {
+		try {
+			return SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new AssertionError("Unexpected problem occurred creating XML parser", e);
+		}
+	});
+
 	private static Set<ModNode> create(InputStream xml) throws SAXException, IOException {
-		try (InputStream in = xml instanceof BufferedInputStream ? xml : new BufferedInputStream(xml)) {
-			XMLReader reader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+		try (InputStream in = xml instanceof BufferedInputStream || xml instanceof ByteArrayInputStream ? xml : new BufferedInputStream(xml)) {
+			XMLReader reader = READERS.get();
 
 			SaxHandler handler = new SaxHandler();
 			reader.setContentHandler(handler);
-			reader.parse(new InputSource(in));
+			try {
+				reader.parse(new InputSource(in));
+			} catch (SAXException | IOException | RuntimeException e) {
+				READERS.remove(); //Don't risk reusing a reader which is left in a strange state
+				throw e;
+			} finally {
+				reader.setContentHandler(null); //Don't keep the result alive for longer than needed
+			}
 
 			return handler.getResult();
-		} catch (ParserConfigurationException e) {
-			throw new AssertionError("Unexpected problem occurred creating XML parser", e);
 		}
 	}
 
@@ -0,0 +1,231 @@
+package com.chocohead.sm.loader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+import com.chocohead.sm.api.SaltsModMetadata;
+import com.chocohead.sm.impl.SimpleModDependency;
+import com.chocohead.sm.impl.SortedModDependency;
+
+/**
+ * Checks the dependencies between mods are all satisfied, then sorts them so each mod comes after any it is {@link ModMetadata#modsBefore() ordered after} or depends on
+ * <br>
+ * Runs in time linear to the number of mods plus dependencies, besides an initial sort by mod ID which keeps the order stable between launches
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class ModResolver {
+	private final ModMetadata[] mods;
+	private final Map<String, Integer> index;
+	private final Predicate<String> otherMods;
+	private final List<String> errors = new ArrayList<>();
+
+	private ModResolver(Collection<ModMetadata> mods, Predicate<String> otherMods) {
+		this.mods = mods.stream().sorted(Comparator.comparing(ModMetadata::getId)).toArray(ModMetadata[]::new);
+		index = new HashMap<>(this.mods.length * 2);
+		for (int i = 0; i < this.mods.length; i++) {
+			index.put(this.mods[i].getId(), i);
+		}
+		this.otherMods = otherMods;
+	}
+
+	/**
+	 * Resolve the given mods
+	 *
+	 * @param mods The mods which are to be loaded
+	 * @param otherMods Whether a mod ID (of a non-Salts Mill mod) is loaded
+	 *
+	 * @return The given mods, sorted into the order they should be loaded in
+	 *
+	 * @throws IllegalStateException If any dependencies are missing, any mods are broken by another, or the mods cannot be ordered
+	 */
+	static List<ModMetadata> resolve(Collection<ModMetadata> mods, Predicate<String> otherMods) {
+		ModResolver resolver = new ModResolver(mods, otherMods);
+
+		resolver.checkDependencies();
+		List<ModMetadata> out = resolver.sort();
+
+		if (!resolver.errors.isEmpty()) {
+			throw new IllegalStateException("Unable to resolve mods:\n\t" + String.join("\n\t", resolver.errors));
+		}
+
+		return out;
+	}
+
+	private static boolean isOtherType(ModDependency dependency) {
+		return dependency instanceof SimpleModDependency && !SaltsModMetadata.TYPE.equals(((SimpleModDependency) dependency).getModType());
+	}
+
+	private boolean isPresent(ModDependency dependency) {
+		if (isOtherType(dependency)) {
+			return otherMods.test(dependency.getModId());
+		} else {
+			return index.containsKey(dependency.getModId());
+		}
+	}
+
+	private static String describe(ModDependency dependency) {
+		if (isOtherType(dependency)) {
+			return dependency.getModId() + " (" + ((SimpleModDependency) dependency).getModType() + ')';
+		} else {
+			return dependency.getModId();
+		}
+	}
+
+	private void checkDependencies() {
+		for (ModMetadata mod : mods) {
+			for (ModDependency dependency : mod.getDepends()) {
+				if (!isPresent(dependency)) {
+					errors.add(mod.getFriendlyName() + " (" + mod.getId() + ") depends on " + describe(dependency) + " which is missing");
+				}
+			}
+
+			for (ModDependency dependency : mod.getRecommends()) {
+				if (!isPresent(dependency)) {
+					PreLoader.LOGGER.warn("{} recommends {} which is missing", mod.getId(), describe(dependency));
+				}
+			}
+
+			for (ModDependency dependency : mod.getSuggests()) {
+				if (!isPresent(dependency)) {
+					PreLoader.LOGGER.info("{} suggests {} which is missing", mod.getId(), describe(dependency));
+				}
+			}
+
+			for (ModDependency dependency : mod.getConflicts()) {
+				if (isPresent(dependency)) {
+					PreLoader.LOGGER.warn("{} conflicts with {}, expect problems", mod.getId(), describe(dependency));
+				}
+			}
+
+			for (ModDependency dependency : mod.getBreaks()) {
+				if (isPresent(dependency)) {
+					errors.add(mod.getFriendlyName() + " (" + mod.getId() + ") is broken by " + describe(dependency) + " which is present");
+				}
+			}
+		}
+	}
+
+	private List<ModMetadata> sort() {
+		IntList[] before = new IntList[mods.length]; //Mods which need to load before each mod
+		IntList[] after = new IntList[mods.length]; //Mods which need to load after each mod
+		for (int i = 0; i < mods.length; i++) {
+			before[i] = new IntArrayList();
+			after[i] = new IntArrayList();
+		}
+
+		for (int i = 0; i < mods.length; i++) {
+			for (String id : mods[i].modsBefore()) {
+				Integer other = index.get(id);
+				if (other == null || other == i) continue; //Only matters if it's actually present (and not the mod itself)
+
+				before[i].add(other.intValue());
+				after[other].add(i);
+			}
+
+			for (String id : mods[i].modsAfter()) {
+				Integer other = index.get(id);
+				if (other == null || other == i) continue;
+
+				after[i].add(other.intValue());
+				before[other].add(i);
+			}
+
+			//Anything a mod depends on (or recommends) without saying otherwise needs to be loaded before it too
+			addDependencies(i, mods[i].getDepends(), before, after);
+			addDependencies(i, mods[i].getRecommends(), before, after);
+		}
+
+		int[] waiting = new int[mods.length];
+		int[] queue = new int[mods.length];
+		int head = 0, tail = 0;
+		for (int i = 0; i < mods.length; i++) {
+			if ((waiting[i] = before[i].size()) == 0) queue[tail++] = i;
+		}
+
+		List<ModMetadata> out = new ArrayList<>(mods.length);
+		while (head < tail) {
+			int mod = queue[head++];
+			out.add(mods[mod]);
+
+			for (int i = 0, end = after[mod].size(); i < end; i++) {
+				int next = after[mod].getInt(i);
+				if (--waiting[next] == 0) queue[tail++] = next;
+			}
+		}
+
+		if (out.size() < mods.length) {
+			errors.add("Mods have circular loading orders: " + findCycle(before, waiting).stream().map(ModMetadata::getId).collect(Collectors.joining(" -> ")));
+
+			List<String> stuck = new ArrayList<>();
+			for (int i = 0; i < mods.length; i++) {
+				if (waiting[i] > 0) stuck.add(mods[i].getId());
+			}
+			errors.add("Unable to order " + stuck.size() + " mods: " + stuck);
+		}
+
+		return out;
+	}
+
+	private void addDependencies(int mod, Collection<ModDependency> dependencies, IntList[] before, IntList[] after) {
+		for (ModDependency dependency : dependencies) {
+			if (isOtherType(dependency)) continue; //Not a Salts Mill mod, even if one shares its ID
+			if (dependency instanceof SortedModDependency) continue; //Explicitly ordered, so already in modsBefore or modsAfter
+
+			Integer other = index.get(dependency.getModId());
+			if (other == null || other == mod) continue; //Only matters if it's actually present
+
+			before[mod].add(other.intValue());
+			after[other].add(mod);
+		}
+	}
+
+	private List<ModMetadata> findCycle(IntList[] before, int[] waiting) {
+		//Any mod still waiting has at least one mod which is still waiting before it, so walking backwards must eventually loop
+		boolean[] seen = new boolean[mods.length];
+
+		int mod = 0;
+		while (waiting[mod] == 0) mod++;
+
+		while (!seen[mod]) {
+			seen[mod] = true;
+			mod = waitingBefore(before[mod], waiting);
+		}
+
+		//Walk the loop again from where it started, then flip it to read in loading order
+		List<ModMetadata> cycle = new ArrayList<>();
+		int start = mod;
+		do {
+			cycle.add(mods[mod]);
+			mod = waitingBefore(before[mod], waiting);
+		} while (mod != start);
+		cycle.add(mods[start]);
+
+		Collections.reverse(cycle);
+		return cycle;
+	}
+
+	private static int waitingBefore(IntList before, int[] waiting) {
+		for (int i = 0, end = before.size(); i < end; i++) {
+			int mod = before.getInt(i);
+			if (waiting[mod] > 0) return mod;
+		}
+
+		throw new IllegalStateException("Waiting mod has nothing left to wait for?");
+	}
+}
\ No newline at end of file
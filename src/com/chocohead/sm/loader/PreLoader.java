@@ -2,15 +2,18 @@ package com.chocohead.sm.loader;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -22,6 +25,7 @@ import com.google.common.collect.Sets;
 
 import org.spongepowered.asm.mixin.Mixins;
 
+import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.FabricLoader;
 
 import com.chocohead.sm.api.SaltsModMetadata;
@@ -35,6 +39,7 @@ public class PreLoader implements Runnable {
 
 	@Override
 	public void run() {
+		LoaderEvents.Phase preLoad = LoaderEvents.beginPhase("Pre-launch");
 		classLoadingForcer();
 
 		CassetteLoader.loadCassettes(resourceLoader); //First we need to make sure all the cassettes are loaded
@@ -42,15 +47,23 @@ public class PreLoader implements Runnable {
 		LOGGER.debug("Commencing loading");
 		Set<ModMetadata> mods = loadMods(); //Then we'll read all the mods we can find
 
-		//Sorting and general dependency resolution should happen next
-		//That's effort though so without any mod to depend on isn't important
-		MODS.addAll(mods);
+		//Then make sure they've got everything they need and put them in order
+		LoaderEvents.Phase phase = LoaderEvents.beginPhase("Mod resolution");
+		MODS.addAll(ModResolver.resolve(mods, FabricLoader.getInstance()::isModLoaded));
+		LoaderEvents.end(phase, MODS.size());
+		LOGGER.debug("Resolved mod order: {}", MODS);
 
+		phase = LoaderEvents.beginPhase("Mixin registration");
+		int mixins = 0;
 		for (ModMetadata mod : MODS) {
 			for (String mixin : mod.getMixinConfigs()) {
 				Mixins.addConfiguration(mixin); //Add the Mixins the loaded mods may have
+				mixins++;
 			}
 		}
+		LoaderEvents.end(phase, mixins);
+
+		LoaderEvents.end(preLoad, MODS.size());
 	}
 
 	/** Define classes which the main and resource threads will otherwise deadlock each other over on a dedicated server */
@@ -60,21 +73,41 @@ public class PreLoader implements Runnable {
 	}
 
 	private static Set<ModMetadata> loadMods() {
-		Set<URL> mods; //As much as I love a good Enumeration, sometimes knowing the size is good too
+		URL[] mods; //As much as I love a good Enumeration, sometimes knowing the size is good too
 		try {
-			mods = Sets.newHashSet(Iterators.forEnumeration(PreLoader.class.getClassLoader().getResources("titus.mod.xml")));
+			//Cassettes share a single classpath entry which only has the first cassette's copy, so they're asked directly for all of them
+			mods = Stream.concat(Sets.newHashSet(Iterators.forEnumeration(PreLoader.class.getClassLoader().getResources("titus.mod.xml"))).stream()
+					.filter(url -> !"salts_mill".equals(url.getProtocol())), CassetteLoader.findAll("titus.mod.xml").stream())
+					.sorted(Comparator.comparing(URL::toExternalForm)).toArray(URL[]::new); //Sorted so the order mods are found in is stable
 		} catch (IOException e) {//Well this isn't good
 			throw new RuntimeException("Fatal error finding mods on the classpath", e);
 		}
 
-		LOGGER.debug("Found {} mod XML URLs", mods.size());
+		LOGGER.debug("Found {} mod XML URLs", mods.length);
+		LoaderEvents.Phase phase = LoaderEvents.beginPhase("Mod reading");
 		Set<ModMetadata> modsList = new HashSet<>();
+		ModCache cache = ModCache.load(FabricLoader.getInstance().getGameDirectory().toPath().resolve(".fabric/salts_mill/mods.cache"));
+		EnvType side = FabricLoader.getInstance().getEnvironmentType();
 
-		for (URL mod : mods) {
-			LOGGER.debug("Reading mod(s) defined at {}", mod);
+		ExecutorService workers = WorkerThreads.create("Mod Parser", mods.length);
+		try {
+			List<Future<Set<ModMetadata>>> parses = new ArrayList<>(mods.length);
+			for (URL mod : mods) {
+				parses.add(workers.submit(() -> {
+					LOGGER.debug("Reading mod(s) defined at {}", mod);
+
+					try {
+						return cache.read(mod, side);
+					} catch (IOException e) {
+						throw new RuntimeException("Error reading mod from " + mod, e);
+					}
+				}));
+			}
 
-			try (InputStream in = mod.openStream()) {
-				Set<ModMetadata> parsedMods = ModParser.read(in, FabricLoader.getInstance().getEnvironmentType());
+			//Checked in the order the XMLs were found regardless of which finishes first, so which duplicate is blamed is stable
+			for (int i = 0; i < mods.length; i++) {
+				URL mod = mods[i];
+				Set<ModMetadata> parsedMods = WorkerThreads.join(parses.get(i));
 				LOGGER.debug("Found {} mod definitions: {}", parsedMods.size(), parsedMods);
 
 				for (ModMetadata parsedMod : parsedMods) {
@@ -105,11 +138,13 @@ public class PreLoader implements Runnable {
 						throw new AssertionError("Unexpected mod source: " + mod);
 					}
 				}
-			} catch (IOException e) {
-				throw new RuntimeException("Error reading mod from " + mod, e);
 			}
+		} finally {
+			workers.shutdownNow(); //Nothing left worth waiting for if something went wrong
 		}
 
+		cache.save();
+		LoaderEvents.end(phase, mods.length);
 		return modsList;
 	}
 }
\ No newline at end of file
@@ -4,155 +4,146 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.Semaphore;
 
-import org.apache.commons.lang3.StringUtils;
-
-import net.minecraft.resource.ResourceType;
-import net.minecraft.util.Identifier;
-import net.minecraft.util.InvalidIdentifierException;
-
-import net.devtech.rrp.api.RuntimeResourcePack;
+import com.chocohead.cassette.CassetteTrack;
 
 @PreMixinClassloaded
 final class ResourceLoader extends Thread {
-	private final ReentrantLock lock = new ReentrantLock(true);
-	private final Condition mapFilled = lock.newCondition();
-	private final Condition loadingCleared = lock.newCondition();
-	private final Map<String, byte[]> allNameToContents = new HashMap<>();
-	private volatile Map<String, byte[]> currentNameToContents;
-	private volatile boolean allPresent, classLoadClear;
+	private static final int QUEUE_LIMIT = Math.max(Integer.getInteger("chocohead.sm.resources.queueLimit", 16), 1);
+	/** Marks the end of the cassettes, never equal by identity to a map which has been given */
+	private static final Map<String, CassetteTrack> COMPLETE = Collections.unmodifiableMap(new HashMap<>());
+	private final BlockingQueue<Map<String, CassetteTrack>> handOff = new LinkedTransferQueue<>();
+	private final Semaphore queueSpace = new Semaphore(QUEUE_LIMIT);
+	private final CountDownLatch loadingCleared = new CountDownLatch(1);
+	private final Map<String, Map<String, Map<String, CassetteTrack>>> typeToNamespace = new HashMap<>();
+	private volatile boolean allPresent;
+	private volatile Throwable failure;
+	private CassetteResourcePack pack;
 
 	public ResourceLoader() {
 		super("Salts Mill Resource Loader");
 
 		setDaemon(true); //Don't hang the game if it dies before we finish
-		start(); //Start immediately, we want that lock!
+		start(); //Start immediately, so each cassette is indexed as soon as it's given
 	}
 
-	void giveFiles(Map<String, byte[]> nameToContents) {
-		giveFiles(nameToContents, false);
+	/**
+	 * Hand over the tracks of a cassette to be indexed, safe to call from any number of threads at once
+	 * <br>
+	 * Only waits if {@code chocohead.sm.resources.queueLimit} cassettes are already waiting to be indexed.
+	 * Tracks given for the same path later replace any given earlier.
+	 *
+	 * @param nameToContents The tracks of the cassette, keyed by their absolute paths
+	 *
+	 * @throws IllegalStateException If indexing the resources has already failed
+	 */
+	void giveFiles(Map<String, CassetteTrack> nameToContents) {
+		assert !allPresent;
+		if (nameToContents.isEmpty()) return; //Nothing to index
+
+		checkFailure();
+		queueSpace.acquireUninterruptibly();
+		checkFailure(); //Might have failed whilst waiting for space
+
+		handOff.add(nameToContents);
 	}
 
-	void complete() {
-		giveFiles(Collections.emptyMap(), true);
+	private void checkFailure() {
+		Throwable failure = this.failure;
+		if (failure != null) throw new IllegalStateException("Failed to index cassette resources", failure);
 	}
 
-	private void giveFiles(Map<String, byte[]> nameToContents, boolean complete) {
-		assert !lock.isHeldByCurrentThread();
-		lock.lock();
-
-		try {
-			assert !allPresent;
-
-			assert currentNameToContents == null;
-			currentNameToContents = nameToContents;
+	/** Signal that every cassette has been given, must only be called once all calls to {@link #giveFiles(Map)} have returned */
+	void complete() {
+		assert !allPresent;
+		allPresent = true;
 
-			if (complete) allPresent = true;
-			mapFilled.signal();
-		} finally {
-			lock.unlock();
-		}
+		handOff.add(COMPLETE); //Doesn't take any space, so finishing never waits
 	}
 
 	/** Signal that the Mixin transformer is now running so it is safe to classload Minecraft types */
 	void clearClassLoading() {
-		assert !lock.isHeldByCurrentThread();
-		lock.lock();
+		assert loadingCleared.getCount() > 0;
+		loadingCleared.countDown();
+	}
 
+	/**
+	 * Wait for every cassette's resources to be indexed
+	 *
+	 * @return A resource pack of every resource in the cassettes
+	 *
+	 * @throws IllegalStateException If indexing the resources failed
+	 */
+	CassetteResourcePack awaitPack() {
 		try {
-			assert !classLoadClear;
-			classLoadClear = true;
-			loadingCleared.signal();
-		} finally {
-			lock.unlock();
+			join(); //Block until we're done loading in all the cassettes
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Unexpected interruption", e);
 		}
+
+		checkFailure();
+		if (pack == null) throw new IllegalStateException("Failed to index cassette resources");
+		return pack;
 	}
 
 	@Override
 	public void run() {
 		try {
-			assert !lock.isHeldByCurrentThread();
-			lock.lock();
-
-			while (!allPresent || currentNameToContents != null) {
-				while (currentNameToContents == null) {
-					try {
-						mapFilled.await(); //Awaiting the condition yields the lock as the thread sleeps
-					} catch (InterruptedException e) {
-						throw new RuntimeException("Unexpected interruption", e);
-					}
-				}
-				assert lock.isHeldByCurrentThread(); //We're back awake so the look is ours again now
-
-				allNameToContents.putAll(currentNameToContents);
-				currentNameToContents = null;
-			}
-
-			Map<String, Map<String, Map<String, byte[]>>> typeToNamespace = new HashMap<>();
-
-			for (Entry<String, byte[]> entry : allNameToContents.entrySet()) {
-				String file = entry.getKey();
-				if (StringUtils.countMatches(file, '/') < 2) continue; //Expecting at least [assets/data]/namespace/***
-
-				int split = file.indexOf('/');
-				String type = file.substring(0, split++);
-
-				int splitter = file.indexOf('/', split);
-				String namespace = file.substring(split, splitter++);
-
-				typeToNamespace.computeIfAbsent(type, k -> new HashMap<>()).computeIfAbsent(namespace, k -> new HashMap<>()).put(file.substring(splitter), entry.getValue());
-			}
-
-			while (!classLoadClear) {
-				try {
-					loadingCleared.await();
-				} catch (InterruptedException e) {
-					throw new RuntimeException("Unexpected interruption", e);
-				}
-			}
-
-			load(typeToNamespace); //Delay the class loading of the Minecraft classes until the Mixin transformer is on
-		} finally {
-			lock.unlock(); //No need for this anymore
+			load();
+		} catch (Throwable t) {
+			failure = t;
+			handOff.clear(); //Never going to be indexed now
+
+			//Wake anyone waiting for space, they'll find the failure once they do
+			queueSpace.release(Integer.MAX_VALUE - QUEUE_LIMIT);
 		}
+	}
+
+	private void load() throws InterruptedException {
+		LoaderEvents.ResourceLoading event = LoaderEvents.beginResourceLoading();
+		long cassetteWait = 0, mixinWait;
+		int tracks = 0, resources;
+
+		while (true) {
+			long waitStart = System.nanoTime();
+			Map<String, CassetteTrack> nameToContents = handOff.take();
+			cassetteWait += System.nanoTime() - waitStart;
+
+			if (nameToContents == COMPLETE) break;
+			queueSpace.release();
+
+			index(nameToContents); //Whilst the next cassette is still being read, so only registering is left once class loading is clear
+			tracks += nameToContents.size();
+		}
+
+		long waitStart = System.nanoTime();
+		loadingCleared.await();
+		mixinWait = System.nanoTime() - waitStart;
+
+		pack = new CassetteResourcePack(typeToNamespace); //Delay the class loading of the Minecraft classes until the Mixin transformer is on
+		resources = pack.size();
 
-		allNameToContents.clear();
+		typeToNamespace.clear();
+		LoaderEvents.end(event, tracks, resources, cassetteWait, mixinWait);
 	}
 
-	private static void load(Map<String, Map<String, Map<String, byte[]>>> typeToNamespace) {
-		for (ResourceType type : ResourceType.values()) {
-			Map<String, Map<String, byte[]>> namespaceToAssets = typeToNamespace.get(type.getDirectory());
-			if (namespaceToAssets == null) continue; //None of these apparently
-
-			assert !namespaceToAssets.isEmpty(); //Shouldn't be
-			for (Entry<String, Map<String, byte[]>> entry : namespaceToAssets.entrySet()) {
-				String namespace = entry.getKey();
-
-				assert !entry.getValue().isEmpty(); //Shouldn't be either
-				for (Entry<String, byte[]> asset : entry.getValue().entrySet()) {
-					try {
-						RuntimeResourcePack.INSTANCE.addAsyncResource(new Identifier(namespace, asset.getKey()), asset::getValue);
-					} catch (InvalidIdentifierException e) {
-						String typeName;
-						switch (type) {
-						case CLIENT_RESOURCES:
-							typeName = "asset";
-							break;
-
-						case SERVER_DATA:
-							typeName = "datapack entry";
-							break;
-
-						default:
-							typeName = "mystical " + type; //Most mysterious
-							break;
-						}
-						ModLoader.LOGGER.warn("Invalid " + typeName + " found in a cassette: \"" + namespace + "\":\"" + asset.getKey() + '"');
-					}
-				}
-			}
+	private void index(Map<String, CassetteTrack> nameToContents) {
+		for (Entry<String, CassetteTrack> entry : nameToContents.entrySet()) {
+			String file = entry.getKey();
+			int start = file.startsWith("/") ? 1 : 0; //Tracks are given as absolute paths
+
+			//Expecting at least [assets/data]/namespace/***
+			int typeEnd = file.indexOf('/', start);
+			if (typeEnd < 0) continue;
+			int namespaceEnd = file.indexOf('/', typeEnd + 1);
+			if (namespaceEnd < 0) continue;
+
+			Map<String, Map<String, CassetteTrack>> namespaceToAssets = typeToNamespace.computeIfAbsent(file.substring(start, typeEnd), k -> new HashMap<>());
+			namespaceToAssets.computeIfAbsent(file.substring(typeEnd + 1, namespaceEnd), k -> new HashMap<>()).put(file.substring(namespaceEnd + 1), entry.getValue());
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.chocohead.sm.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.chocohead.cassette.CassetteTrack;
+
+/**
+ * Keeps the inflated contents of recently read compressed tracks, so reloading resources doesn't have to inflate them all again
+ * <br>
+ * Only holds up to {@code chocohead.sm.trackCache.size} kilobytes (turned off if {@code 0}), dropping the least recently read first,
+ * and only softly so the garbage collector can still take them back when the heap is tight. Anything dropped is just inflated again
+ * from the mapped cassette next time it is read. Uncompressed tracks are never kept, as they can be streamed straight out of the mapping.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class TrackCache {
+	private static final long MAX_SIZE = Long.getLong("chocohead.sm.trackCache.size", 16 * 1024) * 1024;
+	private static final Map<CassetteTrack, SoftReference<byte[]>> CACHE = new LinkedHashMap<>(64, 0.75F, true);
+	private static long size; //Of everything in the cache, including anything which has been collected
+
+	private TrackCache() {
+	}
+
+	/**
+	 * Open the given track's (decompressed) contents, from the cache if they are there
+	 *
+	 * @param track The track to open
+	 *
+	 * @return A stream of the track's contents
+	 *
+	 * @throws IOException If there is a problem inflating the track
+	 */
+	static InputStream open(CassetteTrack track) throws IOException {
+		if (!track.isCompressed() || track.size() > MAX_SIZE) return track.openStream(); //Streamed straight out of the mapping
+
+		byte[] contents;
+		synchronized (CACHE) {
+			SoftReference<byte[]> cached = CACHE.get(track);
+			contents = cached != null ? cached.get() : null;
+
+			if (cached != null && contents == null) {
+				CACHE.remove(track); //Collected, but still counted
+				size -= track.size();
+			}
+		}
+
+		if (contents == null) {
+			contents = track.read(); //Inflating is left outside the lock, at worst two threads both inflate the same track
+
+			synchronized (CACHE) {
+				if (CACHE.putIfAbsent(track, new SoftReference<>(contents)) == null) {
+					size += track.size();
+
+					for (Iterator<CassetteTrack> it = CACHE.keySet().iterator(); size > MAX_SIZE && it.hasNext();) {
+						size -= it.next().size();
+						it.remove();
+					}
+				}
+			}
+		}
+
+		return new ByteArrayInputStream(contents); //Only ever read, so the cached array can be shared
+	}
+}
\ No newline at end of file
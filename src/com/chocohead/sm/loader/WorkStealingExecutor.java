@@ -0,0 +1,339 @@
+package com.chocohead.sm.loader;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A work stealing pool which runs tasks on the submitting thread rather than rejecting them once too many are waiting
+ * <br>
+ * Tasks submitted from within other tasks go on the submitting thread's own queue, for any idle threads to steal. Waiting on a
+ * future {@link #submit(Callable) submitted} to the pool from within it lets the pool start a spare thread, so it can't deadlock.
+ * The number of threads and how many tasks can be queued are set by the {@code chocohead.sm.threads.parallelism}
+ * and {@code chocohead.sm.threads.queueLimit} system properties respectively.
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+public final class WorkStealingExecutor extends AbstractListeningExecutorService {
+	private static class Worker extends ForkJoinWorkerThread {
+		private static final AtomicInteger NUMBER = new AtomicInteger(1);
+
+		Worker(ForkJoinPool pool) {
+			super(pool);
+
+			setName("Salts-Mill-Worker: " + NUMBER.getAndIncrement());
+			setDaemon(true);
+			setPriority(Thread.NORM_PRIORITY);
+			setContextClassLoader(WorkStealingExecutor.class.getClassLoader());
+		}
+	}
+	/** A future which, when waited on from within the pool, lets the pool make up for the thread waiting */
+	private class PoolFuture<T> extends AbstractFuture<T> implements Runnable {
+		private final Callable<T> task;
+		private volatile Thread runner;
+
+		PoolFuture(Callable<T> task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			if (isDone()) return; //Cancelled before it started
+			runner = Thread.currentThread();
+
+			try {
+				set(task.call());
+			} catch (Throwable t) {
+				setException(t);
+			} finally {
+				runner = null;
+			}
+		}
+
+		@Override
+		protected void interruptTask() {
+			Thread runner = this.runner;
+			if (runner != null) runner.interrupt();
+		}
+
+		@Override
+		public T get() throws InterruptedException, ExecutionException {
+			if (!isDone() && isWorker(Thread.currentThread())) {
+				ForkJoinPool.managedBlock(new ManagedBlocker() {
+					@Override
+					public boolean block() throws InterruptedException {
+						try {
+							PoolFuture.super.get();
+						} catch (ExecutionException | CancellationException e) {
+							//Thrown again once done blocking
+						}
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return isDone();
+					}
+				});
+			}
+
+			return super.get();
+		}
+
+		@Override
+		public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!isDone() && isWorker(Thread.currentThread())) {
+				long end = System.nanoTime() + unit.toNanos(timeout);
+
+				ForkJoinPool.managedBlock(new ManagedBlocker() {
+					@Override
+					public boolean block() throws InterruptedException {
+						try {
+							PoolFuture.super.get(end - System.nanoTime(), TimeUnit.NANOSECONDS);
+						} catch (ExecutionException | CancellationException | TimeoutException e) {
+							//Thrown again once done blocking
+						}
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return isDone() || end - System.nanoTime() <= 0;
+					}
+				});
+
+				if (!isDone()) throw new TimeoutException("Waited " + timeout + ' ' + unit.toString().toLowerCase(Locale.ENGLISH) + " for " + this);
+				return super.get();
+			}
+
+			return super.get(timeout, unit);
+		}
+	}
+	private class Task implements Runnable {
+		private final Runnable task;
+		private final long queuedAt = System.nanoTime();
+
+		Task(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long latency = System.nanoTime() - queuedAt;
+			totalLatency.add(latency);
+			maxLatency.accumulateAndGet(latency, Math::max);
+			queued.decrementAndGet();
+
+			active.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				active.decrementAndGet();
+				completed.increment();
+			}
+		}
+	}
+	private final ForkJoinPool pool;
+	private final int queueLimit;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder callerRuns = new LongAdder();
+	private final LongAdder totalLatency = new LongAdder();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * Create a pool configured from the system properties, defaulting to a thread per core
+	 */
+	static WorkStealingExecutor create() {
+		int parallelism = Math.max(Integer.getInteger("chocohead.sm.threads.parallelism", Runtime.getRuntime().availableProcessors()), 1);
+		int queueLimit = Math.max(Integer.getInteger("chocohead.sm.threads.queueLimit", parallelism * 64), 0);
+		return new WorkStealingExecutor(parallelism, queueLimit);
+	}
+
+	/**
+	 * Create a pool with the given number of threads
+	 *
+	 * @param parallelism The number of threads to run tasks on
+	 * @param queueLimit The most tasks which can be waiting to run before the submitting thread runs them instead
+	 */
+	public WorkStealingExecutor(int parallelism, int queueLimit) {
+		if (queueLimit < 0) throw new IllegalArgumentException("Negative queue limit: " + queueLimit);
+
+		ForkJoinWorkerThreadFactory factory = Worker::new;
+		pool = new ForkJoinPool(parallelism, factory, WorkStealingExecutor::reportUncaught, true); //First in first out suits tasks which aren't split up into smaller ones
+		this.queueLimit = queueLimit;
+	}
+
+	private static void reportUncaught(Thread thread, Throwable t) {
+		ModLoader.LOGGER.error("Uncaught exception in " + thread.getName(), t);
+	}
+
+	@Override
+	public ListenableFuture<?> submit(Runnable task) {
+		return submit(Executors.callable(task));
+	}
+
+	@Override
+	public <T> ListenableFuture<T> submit(Runnable task, T result) {
+		return submit(Executors.callable(task, result));
+	}
+
+	@Override
+	public <T> ListenableFuture<T> submit(Callable<T> task) {
+		PoolFuture<T> future = new PoolFuture<>(task);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (pool.isShutdown()) throw new RejectedExecutionException("Executor has been shutdown");
+		Task task = new Task(command);
+
+		if (queued.incrementAndGet() > queueLimit) {
+			//Too much waiting already, so rather than rejecting it the caller runs it
+			callerRuns.increment();
+			task.run();
+		} else {
+			queue(task);
+		}
+	}
+
+	/**
+	 * Queue the given task to run on the pool, even if there are already too many tasks waiting
+	 * <br>
+	 * For tasks which would rather wait than be run by the caller, otherwise use {@link #execute(Runnable)}
+	 *
+	 * @param command The task to run
+	 */
+	public void fork(Runnable command) {
+		if (pool.isShutdown()) throw new RejectedExecutionException("Executor has been shutdown");
+
+		queued.incrementAndGet();
+		queue(new Task(command));
+	}
+
+	private void queue(Task task) {
+		try {
+			if (isWorker(Thread.currentThread())) {//Onto the worker's own queue, from where any idle workers can steal it
+				ForkJoinTask.adapt(() -> {
+					try {
+						task.run();
+					} catch (Throwable t) {//Would otherwise be quietly kept in the adapted task
+						reportUncaught(Thread.currentThread(), t);
+					}
+				}).fork();
+			} else {
+				pool.execute(task);
+			}
+		} catch (Throwable t) {
+			queued.decrementAndGet();
+			throw t;
+		}
+	}
+
+	private boolean isWorker(Thread thread) {
+		return thread instanceof Worker && ((Worker) thread).getPool() == pool;
+	}
+
+	/** The number of threads tasks are run on */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/** The number of tasks waiting to be run */
+	public int getQueuedTasks() {
+		return queued.get();
+	}
+
+	/** The number of tasks currently being run, including any on the threads which submitted them */
+	public int getActiveTasks() {
+		return active.get();
+	}
+
+	/** The number of pool threads which currently exist */
+	public int getWorkers() {
+		return pool.getPoolSize();
+	}
+
+	/** The number of tasks which have finished running */
+	public long getCompletedTasks() {
+		return completed.sum();
+	}
+
+	/** The number of tasks which were run by the thread which submitted them, due to the queue being full */
+	public long getCallerRunTasks() {
+		return callerRuns.sum();
+	}
+
+	/**
+	 * @param unit The unit to give the time in
+	 *
+	 * @return The average time tasks have been waiting before being run
+	 */
+	public long getMeanLatency(TimeUnit unit) {
+		long started = completed.sum() + active.get();
+		return started > 0 ? unit.convert(totalLatency.sum() / started, TimeUnit.NANOSECONDS) : 0;
+	}
+
+	/**
+	 * @param unit The unit to give the time in
+	 *
+	 * @return The longest time a task has been waiting before being run
+	 */
+	public long getMaxLatency(TimeUnit unit) {
+		return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return pool.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return pool.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return pool.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return pool.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return "WorkStealingExecutor[parallelism = " + getParallelism() + ", workers = " + getWorkers() + ", active = " + getActiveTasks() + ", queued = " + getQueuedTasks()
+				+ ", completed = " + getCompletedTasks() + ", caller ran = " + getCallerRunTasks() + ", mean latency = " + getMeanLatency(TimeUnit.MICROSECONDS) + "us]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.chocohead.sm.loader;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Short lived thread pools for spreading pre-Mixin loading work across cores
+ * <br>
+ * These are deliberately separate from {@link ModLoader#THREAD_POOL}, which isn't safe to classload this early
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+@PreMixinClassloaded
+final class WorkerThreads {
+	private WorkerThreads() {
+	}
+
+	/**
+	 * Create a pool for running the given number of independent tasks, which should be {@link ExecutorService#shutdown() shutdown} once finished with
+	 *
+	 * @param name The name to give the threads
+	 * @param tasks The number of tasks which are expected to be submitted
+	 *
+	 * @return A pool of up to as many threads as there are cores, or one which runs on the calling thread if there's no benefit to splitting
+	 */
+	static ExecutorService create(String name, int tasks) {
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), tasks);
+		if (threads <= 1) return MoreExecutors.newDirectExecutorService();
+
+		ClassLoader loader = WorkerThreads.class.getClassLoader();
+		AtomicInteger number = new AtomicInteger(1);
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "Salts Mill " + name + ": " + number.getAndIncrement());
+
+			thread.setDaemon(true); //Don't hang the game if something goes wrong
+			thread.setContextClassLoader(loader);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * Wait for the given task to finish, rethrowing anything it threw
+	 *
+	 * @param task The task to wait for
+	 *
+	 * @return The result of the task
+	 */
+	static <T> T join(Future<T> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Unexpected interruption", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+}
\ No newline at end of file
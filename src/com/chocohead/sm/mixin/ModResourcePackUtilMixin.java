@@ -20,7 +20,7 @@ import com.chocohead.sm.api.SaltsModMetadata;
 import com.chocohead.sm.loader.DevModResourcePack;
 import com.chocohead.sm.loader.ModLoader;
 
-@Pseudo //Only depend on fabric-resource-loader-v0 in dev for the sake of loading the resources
+@Pseudo //Only recommend fabric-resource-loader-v0, without it there are just no cassette resources
 @Mixin(value = ModResourcePackUtil.class, remap = false)
 public class ModResourcePackUtilMixin {
 	@Inject(method = "appendModResourcePacks", at = @At("HEAD"))
@@ -33,5 +33,8 @@ public class ModResourcePackUtilMixin {
 				throw new AssertionError("Managed to throw in an empty close method?", e);
 			}
 		}
+
+		ResourcePack cassettes = ModLoader.getCassetteResourcePack();
+		if (!cassettes.getNamespaces(type).isEmpty()) packList.add(cassettes);
 	}
 }
\ No newline at end of file
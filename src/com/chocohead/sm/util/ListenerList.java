@@ -0,0 +1,98 @@
+package com.chocohead.sm.util;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.chocohead.sm.loader.ModMetadata;
+
+/**
+ * Every listener of a single type across all the loaded mods, frozen in load order along with which mod each came from
+ * <br>
+ * Going through listeners by {@link #size()} and {@link #get(int)} doesn't allocate anything, so is safe to do as often as needed
+ *
+ * @param <T> The type of listener
+ *
+ * @author Chocohead
+ *
+ * @since 0.5
+ */
+public final class ListenerList<T> extends AbstractList<T> implements RandomAccess {
+	private final Class<T> type;
+	private final T[] listeners;
+	private final ModMetadata[] owners;
+	private final Map<T, ModMetadata> ownerIndex;
+
+	@SuppressWarnings("unchecked") //Array is made of the right type
+	ListenerList(Class<T> type, List<ModMetadata> mods) {
+		this.type = type;
+
+		int size = 0;
+		for (ModMetadata mod : mods) {
+			size += mod.getListeners(type).size();
+		}
+
+		listeners = (T[]) Array.newInstance(type, size);
+		owners = new ModMetadata[size];
+		ownerIndex = new IdentityHashMap<>(size);
+
+		int i = 0;
+		for (ModMetadata mod : mods) {
+			for (T listener : mod.getListeners(type)) {
+				listeners[i] = listener;
+				owners[i++] = mod;
+				ownerIndex.put(listener, mod);
+			}
+		}
+	}
+
+	/** The type of listener this holds */
+	public Class<T> getType() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return listeners.length;
+	}
+
+	@Override
+	public T get(int index) {
+		return listeners[index];
+	}
+
+	/**
+	 * @param index The index of the listener
+	 *
+	 * @return The mod the listener at the given index came from
+	 */
+	public ModMetadata getOwner(int index) {
+		return owners[index];
+	}
+
+	/**
+	 * @param listener The listener to find the owner of
+	 *
+	 * @return The mod the given listener came from, or {@code null} if it isn't from any of them
+	 */
+	public ModMetadata getOwner(T listener) {
+		return ownerIndex.get(listener);
+	}
+
+	@Override
+	public void forEach(Consumer<? super T> action) {
+		for (T listener : listeners) {
+			action.accept(listener);
+		}
+	}
+
+	@Override
+	public Stream<T> stream() {
+		return Stream.of(listeners);
+	}
+}
\ No newline at end of file
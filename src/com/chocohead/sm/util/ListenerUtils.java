@@ -6,11 +6,34 @@ import com.chocohead.sm.loader.ModLoader;
 import com.chocohead.sm.loader.ModMetadata;
 
 public final class ListenerUtils {
+	private static final ClassValue<ListenerList<?>> LISTENERS = new ClassValue<ListenerList<?>>() {
+		@Override
+		protected ListenerList<?> computeValue(Class<?> type) {
+			return new ListenerList<>(type, ModLoader.getMods());
+		}
+	};
+
 	private ListenerUtils() {
 	}
 
+	/**
+	 * Get all the listeners of the given type, which will be built the first time they're asked for
+	 * <br>
+	 * Shouldn't be used before the mods have all been loaded, as only the mods loaded at the time will be included
+	 *
+	 * @param type The type of listener
+	 *
+	 * @return Every listener of the given type in mod load order
+	 *
+	 * @since 0.5
+	 */
+	@SuppressWarnings("unchecked") //The ClassValue always makes the list for the type it is given
+	public static <T> ListenerList<T> getListenerList(Class<T> type) {
+		return (ListenerList<T>) LISTENERS.get(type);
+	}
+
 	public static <T> Stream<T> getListeners(Class<T> type) {
-		return ModLoader.getMods().stream().flatMap(mod -> mod.getListeners(type).stream());
+		return getListenerList(type).stream();
 	}
 
 	private static String toSafeString(Object thing) {
@@ -23,13 +46,8 @@ public final class ListenerUtils {
 	}
 
 	public static <T> ModMetadata getOwner(Class<T> listenerType, T listener) {
-		for (ModMetadata mod : ModLoader.getMods()) {
-			for (T candidate : mod.getListeners(listenerType)) {
-				if (candidate == listener) {
-					return mod;
-				}
-			}
-		}
+		ModMetadata owner = getListenerList(listenerType).getOwner(listener);
+		if (owner != null) return owner;
 
 		throw new IllegalArgumentException("Could not find owning mod for " + toSafeString(listener) + " (of type " + listenerType + ')');
 	}